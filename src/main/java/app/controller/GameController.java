@@ -6,8 +6,12 @@ import app.utilities.DebugPrinter;
 import lombok.Builder;
 import proto.SnakesProto;
 
+import java.util.concurrent.TimeUnit;
+
 @Builder
 public class GameController {
+    public static final long UNKNOWN_ROUND_TRIP_TIME = -1;
+
     private final GameModel gameModel;
     private final NetworkNode networkNode;
 
@@ -25,9 +29,7 @@ public class GameController {
                 .setPingDelayMs(gamePingDelayMs)
                 .setNodeTimeoutMs(gameNodeTimeoutMs)
                 .build();
-        gameModel.launchNewGameAsMaster(gameConfig, networkNode.getNodeName(),
-                networkNode.getNodeId().hashCode(), networkNode.getMyPort());
-        networkNode.setNewDefaultMasterPlayer();
+        networkNode.launchNewGameAsMaster(gameConfig, true);
         DebugPrinter.printWithSpecifiedDateAndName(this.getClass().getSimpleName(), "New game");
     }
 
@@ -47,6 +49,14 @@ public class GameController {
         networkNode.handleLogoutAction();
     }
 
+    public long getPlayerRoundTripTimeMs(int playerId) {
+        var roundTripTimeEstimator = networkNode.getRoundTripTimeEstimator(playerId);
+        if (roundTripTimeEstimator == null || !roundTripTimeEstimator.hasMeasurements()) {
+            return UNKNOWN_ROUND_TRIP_TIME;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(roundTripTimeEstimator.getSmoothedRoundTripTime());
+    }
+
     public boolean isMySnakeAlive() {
         return gameModel.isPlayerSnakeAlive(networkNode.getNodeId().hashCode());
     }
@@ -1,13 +1,19 @@
 package app.launcher;
 
+import app.networks.FailureDetector;
 import app.networks.NetworkNode;
+import app.networks.PhiAccrualFailureDetector;
+import app.networks.TimeoutFailureDetector;
 import app.model.GameModel;
 import app.utilities.DebugPrinter;
 import app.utilities.parser.CmdArgsParser;
+import app.view.ViewController;
+import org.apache.commons.cli.ParseException;
 import proto.SnakesProto;
 
 import java.net.InetAddress;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 public class GameLauncher {
     public static void main(String[] args) {
@@ -15,13 +21,18 @@ public class GameLauncher {
         try {
             UUID randomId = UUID.randomUUID();
             cmdArgsParser.parseArguments(args);
+            if (cmdArgsParser.isHeadless()) {
+                System.setProperty("java.awt.headless", "true");
+            }
             DebugPrinter.printWithSpecifiedDateAndName(GameModel.class.getSimpleName(),
                     "My port: " + cmdArgsParser.getHostPort());
             DebugPrinter.printWithSpecifiedDateAndName(GameModel.class.getSimpleName(),
                     "My address: " + cmdArgsParser.getHostInetAddress());
             DebugPrinter.printWithSpecifiedDateAndName(GameModel.class.getSimpleName(),
                     "My id: " + randomId.hashCode());
-            GameModel gameModel = new GameModel();
+            DebugPrinter.printWithSpecifiedDateAndName(GameModel.class.getSimpleName(),
+                    "Session random seed: " + cmdArgsParser.getRandomSeed());
+            GameModel gameModel = new GameModel(cmdArgsParser.getRandomSeed());
             NetworkNode networkNode = NetworkNode.builder()
                     .nodeId(randomId)
                     .nodeName(cmdArgsParser.getPlayerName())
@@ -29,11 +40,37 @@ public class GameLauncher {
                     .myPort(cmdArgsParser.getHostPort())
                     .gameModel(gameModel)
                     .myInetAddress(InetAddress.getByName(cmdArgsParser.getHostInetAddress()))
+                    .failureDetector(makeFailureDetector(cmdArgsParser, gameModel))
+                    .mtu(cmdArgsParser.getMtu())
+                    .lockstep(cmdArgsParser.isLockstepUsed())
                     .build();
-            networkNode.startCommunicating();
+            if (cmdArgsParser.isHeadless()) {
+                DebugPrinter.printWithSpecifiedDateAndName(GameModel.class.getSimpleName(),
+                        "Headless game config: " + cmdArgsParser.getGameConfig());
+                networkNode.startCommunicating();
+                networkNode.launchNewGameAsMaster(cmdArgsParser.getGameConfig(), false);
+            } else {
+                networkNode.setViewController(ViewController.builder()
+                        .networkNode(networkNode)
+                        .gameModel(gameModel)
+                        .build());
+                networkNode.startCommunicating();
+            }
+        } catch (ParseException exception) {
+            System.err.println(exception.getMessage());
+            cmdArgsParser.printUsage();
+            System.exit(1);
         } catch (Exception exception) {
             exception.printStackTrace();
             System.exit(0);
         }
     }
+
+    private static FailureDetector makeFailureDetector(CmdArgsParser cmdArgsParser, GameModel gameModel) {
+        if (CmdArgsParser.TIMEOUT_FAILURE_DETECTOR.equals(cmdArgsParser.getFailureDetectorName())) {
+            return new TimeoutFailureDetector(() ->
+                    TimeUnit.MILLISECONDS.toNanos(gameModel.getGameConfig().getNodeTimeoutMs()));
+        }
+        return new PhiAccrualFailureDetector(cmdArgsParser.getSuspicionThreshold());
+    }
 }
@@ -0,0 +1,12 @@
+package app.model;
+
+import proto.SnakesProto;
+
+public record ChangePlayerStatusCommand(int playerId,
+                                        SnakesProto.NodeRole playerRole,
+                                        SnakesProto.GameState.Snake.SnakeState snakeState) implements GameModelCommand {
+    @Override
+    public void executeOn(GameModel gameModel) {
+        gameModel.applyPlayerGameStatus(playerId, playerRole, snakeState);
+    }
+}
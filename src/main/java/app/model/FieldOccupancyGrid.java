@@ -0,0 +1,137 @@
+package app.model;
+
+import java.util.Arrays;
+
+public class FieldOccupancyGrid {
+    private static final int EMPTY_CELL = 0;
+    private static final int FOOD_CELL = -1;
+
+    private final int fieldWidth;
+    private final int fieldHeight;
+    private final int[] cells;
+    private final int[] cellsStamps;
+    private int currentStamp = 1;
+    private final IndexedCellsSet freeCells;
+    private final IndexedCellsSet foodCells;
+
+    public FieldOccupancyGrid(int fieldWidth, int fieldHeight) {
+        this.fieldWidth = fieldWidth;
+        this.fieldHeight = fieldHeight;
+        this.cells = new int[fieldWidth * fieldHeight];
+        this.cellsStamps = new int[cells.length];
+        this.freeCells = new IndexedCellsSet(cells.length);
+        this.foodCells = new IndexedCellsSet(cells.length);
+        this.freeCells.fill();
+    }
+
+    public int getFieldWidth() {
+        return fieldWidth;
+    }
+
+    public int getFieldHeight() {
+        return fieldHeight;
+    }
+
+    public int getCellsNumber() {
+        return cells.length;
+    }
+
+    public int getCellIndex(int x, int y) {
+        int fieldX = ((x % fieldWidth) + fieldWidth) % fieldWidth;
+        int fieldY = ((y % fieldHeight) + fieldHeight) % fieldHeight;
+        return fieldY * fieldWidth + fieldX;
+    }
+
+    public int getCellX(int cellIndex) {
+        return cellIndex % fieldWidth;
+    }
+
+    public int getCellY(int cellIndex) {
+        return cellIndex / fieldWidth;
+    }
+
+    public void occupyBySnake(int x, int y) {
+        int cellIndex = getCellIndex(x, y);
+        int snakeSegmentsNumber = Math.max(getCellValue(cellIndex), EMPTY_CELL);
+        changeCellValue(cellIndex, snakeSegmentsNumber + 1);
+    }
+
+    public void releaseBySnake(int x, int y) {
+        int cellIndex = getCellIndex(x, y);
+        if (getCellValue(cellIndex) > EMPTY_CELL) {
+            changeCellValue(cellIndex, getCellValue(cellIndex) - 1);
+        }
+    }
+
+    public void placeFood(int x, int y) {
+        changeCellValue(getCellIndex(x, y), FOOD_CELL);
+    }
+
+    public void removeFood(int x, int y) {
+        int cellIndex = getCellIndex(x, y);
+        if (getCellValue(cellIndex) == FOOD_CELL) {
+            changeCellValue(cellIndex, EMPTY_CELL);
+        }
+    }
+
+    private int getCellValue(int cellIndex) {
+        return (cellsStamps[cellIndex] == currentStamp) ? cells[cellIndex] : EMPTY_CELL;
+    }
+
+    private void changeCellValue(int cellIndex, int cellValue) {
+        cells[cellIndex] = cellValue;
+        cellsStamps[cellIndex] = currentStamp;
+        if (cellValue == EMPTY_CELL) {
+            freeCells.add(cellIndex);
+        } else {
+            freeCells.remove(cellIndex);
+        }
+        if (cellValue == FOOD_CELL) {
+            foodCells.add(cellIndex);
+        } else {
+            foodCells.remove(cellIndex);
+        }
+    }
+
+    public boolean isFood(int x, int y) {
+        return getCellValue(getCellIndex(x, y)) == FOOD_CELL;
+    }
+
+    public boolean isFree(int x, int y) {
+        return isFree(getCellIndex(x, y));
+    }
+
+    public boolean isFree(int cellIndex) {
+        return getCellValue(cellIndex) == EMPTY_CELL;
+    }
+
+    public int getSnakeSegmentsNumber(int x, int y) {
+        return Math.max(getCellValue(getCellIndex(x, y)), EMPTY_CELL);
+    }
+
+    public int getFreeCellsNumber() {
+        return freeCells.size();
+    }
+
+    public int getFreeCell(int position) {
+        return freeCells.get(position);
+    }
+
+    public int getFoodCellsNumber() {
+        return foodCells.size();
+    }
+
+    public int getFoodCell(int position) {
+        return foodCells.get(position);
+    }
+
+    public void clear() {
+        currentStamp++;
+        if (currentStamp == Integer.MAX_VALUE) {
+            Arrays.fill(cellsStamps, 0);
+            currentStamp = 1;
+        }
+        freeCells.fill();
+        foodCells.clear();
+    }
+}
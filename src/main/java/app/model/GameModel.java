@@ -7,22 +7,53 @@ import proto.SnakesProto;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 public class GameModel extends Publisher {
     private static final int INITIAL_GAME_FIELD_SIZE = 20;
     private static final int INITIAL_STATE_ORDER = 0;
     private static final long ZERO_DIRECTION_CHANGES = 0L;
     private static final int SNAKE_HEAD_INDEX = 0;
+    private static final int ABSENT_PLAYER_INDEX = -1;
+    private static final int SNAKE_SPAWN_AREA_SIZE = 5;
+    private static final int MAX_REMEMBERED_STATES_NUMBER = 32;
+    private static final int MAX_PREDICTED_DIRECTION_STEPS = 3;
+    private static final int MAX_QUEUED_DIRECTIONS = 3;
 
     private ConcurrentHashMap<Integer, Long> directionChangesNumbersByPlayer = new ConcurrentHashMap<>();
     private ConcurrentHashMap<Integer, Instant> activitiesTimestampsByPlayer = new ConcurrentHashMap<>();
-    private ConcurrentHashMap<Integer, LinkedList<SnakesProto.GameState.Coord>> snakesAllCoordinatesByPlayer = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<Integer, SnakeBody> snakesBodiesByPlayer = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<Integer, SnakeKeyPoints> snakesKeyPointsByPlayer = new ConcurrentHashMap<>();
     private ConcurrentHashMap<Integer, SnakesProto.Direction> snakesDirectionsByPlayer = new ConcurrentHashMap<>();
-    private SnakesProto.GamePlayers sessionGamePlayers = SnakesProto.GamePlayers.newBuilder().build();
-    private SnakesProto.GameState gameState;
-    private int sessionMasterId;
-
-    public GameModel() {
+    private ConcurrentHashMap<Integer, SnakesProto.Direction> snakesHeadDirectionsByPlayer = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<Integer, ArrayDeque<SnakesProto.Direction>> queuedDirectionsByPlayer = new ConcurrentHashMap<>();
+    private ConcurrentSkipListMap<Integer, SnakesProto.GameState.Snake.SnakeState> snakesStatesByPlayer = new ConcurrentSkipListMap<>();
+    private SnakesProto.GamePlayers.Builder sessionGamePlayersBuilder = SnakesProto.GamePlayers.newBuilder();
+    private volatile SnakesProto.GamePlayers sessionGamePlayers = SnakesProto.GamePlayers.newBuilder().build();
+    private SnakesProto.GameConfig gameConfig;
+    private int stateOrder;
+    // Опубликованный снимок состояния: только его читают потоки кроме потока шагов игры
+    private volatile SnakesProto.GameState gameState;
+    private volatile SnakesProto.GameState previousGameState;
+    private volatile long gameStateChangeTime = System.nanoTime();
+    private final ConcurrentHashMap<Integer, SnakesProto.Direction> predictedDirectionsByPlayer = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Integer> predictionStateOrdersByPlayer = new ConcurrentHashMap<>();
+    private FieldOccupancyGrid occupancyGrid;
+    private List<SnakesProto.GameState.ChunkSummary> chunkSummaries = List.of();
+    private volatile int sessionMasterId;
+    private int openedStateTransactionsNumber = 0;
+    private final long sessionRandomSeed;
+    private SplittableRandom numbersGenerator;
+    private SplittableRandom tickSeedsGenerator;
+    private GameTickInputs lastTickInputs;
+    private final ConcurrentLinkedQueue<GameModelCommand> pendingCommands = new ConcurrentLinkedQueue<>();
+    private final ConcurrentSkipListMap<Integer, SnakesProto.GameState> rememberedStatesByOrder = new ConcurrentSkipListMap<>();
+
+    public GameModel(long sessionRandomSeed) {
+        this.sessionRandomSeed = sessionRandomSeed;
+        this.numbersGenerator = new SplittableRandom(sessionRandomSeed);
+        this.tickSeedsGenerator = numbersGenerator.split();
         this.changeGameStateBy(this.getDefaultGameConfig());
     }
 
@@ -34,29 +65,26 @@ public class GameModel extends Publisher {
     }
 
     private void changeGameStateBy(SnakesProto.GameConfig gameConfig) {
-        this.gameState = SnakesProto.GameState.newBuilder()
-                .setConfig(gameConfig)
-                .setPlayers(this.sessionGamePlayers)
-                .setStateOrder(INITIAL_STATE_ORDER)
-                .build();
+        this.beginStateTransaction();
+        this.gameConfig = gameConfig;
+        this.stateOrder = INITIAL_STATE_ORDER;
+        this.occupancyGrid = new FieldOccupancyGrid(gameConfig.getWidth(), gameConfig.getHeight());
+        this.chunkSummaries = List.of();
+        this.commitStateTransaction();
     }
 
     public int getWidthFromGameConfig() {
-        return gameState.getConfig().getWidth();
+        return gameConfig.getWidth();
     }
 
     public int getHeightFromGameConfig() {
-        return gameState.getConfig().getHeight();
+        return gameConfig.getHeight();
     }
 
     public SnakesProto.GamePlayers getSessionGamePlayers() {
         return sessionGamePlayers;
     }
 
-    public void setSessionGamePlayers(SnakesProto.GamePlayers sessionGamePlayers) {
-        this.sessionGamePlayers = sessionGamePlayers;
-    }
-
     public ConcurrentHashMap<Integer, Long> getDirectionChangesNumbersByPlayer() {
         return directionChangesNumbersByPlayer;
     }
@@ -77,23 +105,107 @@ public class GameModel extends Publisher {
         return gameState;
     }
 
-    public ConcurrentHashMap<Integer, LinkedList<SnakesProto.GameState.Coord>> getSnakesAllCoordinatesByPlayer() {
-        return snakesAllCoordinatesByPlayer;
-    }
-
     public int getSessionMasterId() {
         return sessionMasterId;
     }
 
+    public void submitCommand(GameModelCommand command) {
+        pendingCommands.add(command);
+    }
+
+    public void applyPendingCommands() {
+        if (pendingCommands.isEmpty()) {
+            return;
+        }
+        this.beginStateTransaction();
+        this.drainPendingCommands();
+        this.commitStateTransaction();
+        this.informAllSubscribers();
+    }
+
+    private void drainPendingCommands() {
+        GameModelCommand command;
+        while ((command = pendingCommands.poll()) != null) {
+            command.executeOn(this);
+        }
+    }
+
+    public void beginStateTransaction() {
+        openedStateTransactionsNumber++;
+    }
+
+    public void commitStateTransaction() {
+        if (openedStateTransactionsNumber > 0) {
+            openedStateTransactionsNumber--;
+        }
+        if (openedStateTransactionsNumber == 0) {
+            this.publishGameState();
+        }
+    }
+
+    private void publishGameState() {
+        sessionGamePlayers = sessionGamePlayersBuilder.build();
+        var gameStateBuilder = SnakesProto.GameState.newBuilder()
+                .setStateOrder(stateOrder)
+                .setConfig(gameConfig)
+                .setPlayers(sessionGamePlayers)
+                .addAllChunkSummaries(chunkSummaries);
+        for (var snakeState : snakesStatesByPlayer.entrySet()) {
+            int playerId = snakeState.getKey();
+            var snakeBuilder = SnakesProto.GameState.Snake.newBuilder()
+                    .setPlayerId(playerId)
+                    .setState(snakeState.getValue())
+                    .setHeadDirection(snakesHeadDirectionsByPlayer.get(playerId));
+            snakesKeyPointsByPlayer.get(playerId).writePointsTo(snakeBuilder);
+            gameStateBuilder.addSnakes(snakeBuilder);
+        }
+        int[] foodCells = new int[occupancyGrid.getFoodCellsNumber()];
+        for (int i = 0; i < foodCells.length; i++) {
+            foodCells[i] = occupancyGrid.getFoodCell(i);
+        }
+        Arrays.sort(foodCells);
+        for (int foodCell : foodCells) {
+            gameStateBuilder.addFoods(convertCellToCoordinate(foodCell));
+        }
+        var lastGameState = gameState;
+        gameState = gameStateBuilder.build();
+        if (lastGameState == null || lastGameState.getStateOrder() != stateOrder) {
+            previousGameState = lastGameState;
+            gameStateChangeTime = System.nanoTime();
+            this.reconcilePredictedDirections();
+        }
+    }
+
+    private void reconcilePredictedDirections() {
+        for (var predictedDirection : predictedDirectionsByPlayer.entrySet()) {
+            int playerId = predictedDirection.getKey();
+            var headDirection = snakesHeadDirectionsByPlayer.get(playerId);
+            int predictionStateOrder = predictionStateOrdersByPlayer.getOrDefault(playerId, stateOrder);
+            if (headDirection == null || headDirection.equals(predictedDirection.getValue()) ||
+                    stateOrder - predictionStateOrder >= MAX_PREDICTED_DIRECTION_STEPS) {
+                predictedDirectionsByPlayer.remove(playerId);
+                predictionStateOrdersByPlayer.remove(playerId);
+            }
+        }
+    }
+
     public void launchNewGameAsMaster(SnakesProto.GameConfig gameConfig, String playerName,
-                                      int playerId, int playerPort) {
-        this.sessionGamePlayers = SnakesProto.GamePlayers.newBuilder().build();
-        this.snakesAllCoordinatesByPlayer = new ConcurrentHashMap<>();
+                                      int playerId, int playerPort, boolean hasMasterSnake) {
+        this.sessionGamePlayersBuilder = SnakesProto.GamePlayers.newBuilder();
+        this.snakesBodiesByPlayer = new ConcurrentHashMap<>();
+        this.snakesKeyPointsByPlayer = new ConcurrentHashMap<>();
         this.snakesDirectionsByPlayer = new ConcurrentHashMap<>();
+        this.snakesHeadDirectionsByPlayer = new ConcurrentHashMap<>();
+        this.queuedDirectionsByPlayer = new ConcurrentHashMap<>();
+        this.snakesStatesByPlayer = new ConcurrentSkipListMap<>();
         this.directionChangesNumbersByPlayer = new ConcurrentHashMap<>();
         this.activitiesTimestampsByPlayer = new ConcurrentHashMap<>();
         this.sessionMasterId = playerId;
-        this.changeGameStateBy(gameConfig);
+        this.pendingCommands.clear();
+        this.rememberedStatesByOrder.clear();
+        this.numbersGenerator = new SplittableRandom(sessionRandomSeed);
+        this.tickSeedsGenerator = numbersGenerator.split();
+        this.lastTickInputs = null;
         SnakesProto.GamePlayer me = SnakesProto.GamePlayer.newBuilder()
                 .setId(playerId)
                 .setName(playerName)
@@ -103,272 +215,435 @@ public class GameModel extends Publisher {
                 .setScore(0)
                 .build();
 
-        this.addNewPlayerToModel(me);
+        this.beginStateTransaction();
+        this.changeGameStateBy(gameConfig);
+        if (hasMasterSnake) {
+            this.applyNewPlayer(me);
+        } else {
+            this.sessionGamePlayersBuilder.addPlayers(me);
+        }
+        this.commitStateTransaction();
         this.informAllSubscribers();
     }
 
     public void setGameState(SnakesProto.GameState gameState) {
-        this.gameState = gameState;
+        this.rememberGameState(gameState);
+        this.submitCommand(new LoadGameStateCommand(gameState));
+    }
+
+    public SnakesProto.GameState restoreGameStateFrom(SnakesProto.GameMessage.StateDeltaMsg stateDelta) {
+        var baseState = rememberedStatesByOrder.get(stateDelta.getBaseStateOrder());
+        if (baseState == null) {
+            return null;
+        }
+        return GameStateDeltas.applyDelta(baseState, stateDelta);
+    }
+
+    public SnakesProto.GameState getRememberedGameState(int stateOrder) {
+        return rememberedStatesByOrder.get(stateOrder);
+    }
+
+    private void rememberGameState(SnakesProto.GameState gameState) {
+        rememberedStatesByOrder.put(gameState.getStateOrder(), gameState);
+        while (rememberedStatesByOrder.size() > MAX_REMEMBERED_STATES_NUMBER) {
+            rememberedStatesByOrder.pollFirstEntry();
+        }
+    }
+
+    void applyGameState(SnakesProto.GameState gameState) {
+        this.beginStateTransaction();
+        this.loadWorkingStateFrom(gameState);
+        this.commitStateTransaction();
+    }
+
+    private void loadWorkingStateFrom(SnakesProto.GameState gameState) {
+        this.gameConfig = gameState.getConfig();
+        this.stateOrder = gameState.getStateOrder();
+        this.sessionGamePlayersBuilder = gameState.getPlayers().toBuilder();
+        this.sessionGamePlayers = gameState.getPlayers();
+        this.chunkSummaries = gameState.getChunkSummariesList();
+        if (occupancyGrid.getFieldWidth() != gameConfig.getWidth() ||
+                occupancyGrid.getFieldHeight() != gameConfig.getHeight()) {
+            occupancyGrid = new FieldOccupancyGrid(gameConfig.getWidth(), gameConfig.getHeight());
+        } else {
+            occupancyGrid.clear();
+        }
+        ConcurrentHashMap<Integer, SnakeBody> loadedSnakesBodies = new ConcurrentHashMap<>();
+        ConcurrentHashMap<Integer, SnakeKeyPoints> loadedSnakesKeyPoints = new ConcurrentHashMap<>();
+        ConcurrentHashMap<Integer, SnakesProto.Direction> loadedHeadDirections = new ConcurrentHashMap<>();
+        ConcurrentSkipListMap<Integer, SnakesProto.GameState.Snake.SnakeState> loadedSnakesStates = new ConcurrentSkipListMap<>();
         for (var snake : gameState.getSnakesList()) {
-            snakesAllCoordinatesByPlayer.put(snake.getPlayerId(), getSnakeAllCoordinates(snake));
+            var snakeBody = decodeSnakeBody(snake);
+            loadedSnakesBodies.put(snake.getPlayerId(), snakeBody);
+            loadedSnakesKeyPoints.put(snake.getPlayerId(), SnakeKeyPoints.fromSnake(snake));
+            loadedHeadDirections.put(snake.getPlayerId(), snake.getHeadDirection());
+            loadedSnakesStates.put(snake.getPlayerId(), snake.getState());
+            occupySnakeCells(snakeBody);
+        }
+        this.snakesBodiesByPlayer = loadedSnakesBodies;
+        this.snakesKeyPointsByPlayer = loadedSnakesKeyPoints;
+        this.snakesHeadDirectionsByPlayer = loadedHeadDirections;
+        this.snakesStatesByPlayer = loadedSnakesStates;
+        for (var foodCoordinate : gameState.getFoodsList()) {
+            occupancyGrid.placeFood(foodCoordinate.getX(), foodCoordinate.getY());
+        }
+        this.retainPendingSteers();
+    }
+
+    private void retainPendingSteers() {
+        snakesDirectionsByPlayer.entrySet().removeIf(snakeDirection ->
+                !snakesHeadDirectionsByPlayer.containsKey(snakeDirection.getKey()) ||
+                        snakesHeadDirectionsByPlayer.get(snakeDirection.getKey())
+                                .equals(getReverseDirectionTo(snakeDirection.getValue())));
+        for (var player : sessionGamePlayersBuilder.getPlayersList()) {
+            directionChangesNumbersByPlayer.putIfAbsent(player.getId(), ZERO_DIRECTION_CHANGES);
+        }
+        this.advanceAllQueuedDirections();
+    }
+
+    private void occupySnakeCells(SnakeBody snakeBody) {
+        for (int i = 0; i < snakeBody.size(); i++) {
+            int cell = snakeBody.get(i);
+            occupancyGrid.occupyBySnake(occupancyGrid.getCellX(cell), occupancyGrid.getCellY(cell));
+        }
+    }
+
+    private void releaseSnakeCells(SnakeBody snakeBody) {
+        for (int i = 0; i < snakeBody.size(); i++) {
+            int cell = snakeBody.get(i);
+            occupancyGrid.releaseBySnake(occupancyGrid.getCellX(cell), occupancyGrid.getCellY(cell));
         }
-        this.informAllSubscribers();
     }
 
     public void addNewPlayerToModel(SnakesProto.GamePlayer newPlayer) {
-        boolean isPlayerUnknown = true;
-        for (SnakesProto.GamePlayer existingPlayer : gameState.getPlayers().getPlayersList()) {
-            if (existingPlayer.getId() == newPlayer.getId()) {
-                isPlayerUnknown = false;
-                this.changePlayerGameStatus(newPlayer.getId(),
-                        SnakesProto.NodeRole.NORMAL,
-                        SnakesProto.GameState.Snake.SnakeState.ALIVE);
-            }
+        this.submitCommand(new JoinPlayerCommand(newPlayer));
+    }
+
+    void applyNewPlayer(SnakesProto.GamePlayer newPlayer) {
+        this.beginStateTransaction();
+        boolean isPlayerUnknown = getPlayerIndexById(newPlayer.getId()) == ABSENT_PLAYER_INDEX;
+        if (!isPlayerUnknown) {
+            this.applyPlayerGameStatus(newPlayer.getId(),
+                    SnakesProto.NodeRole.NORMAL,
+                    SnakesProto.GameState.Snake.SnakeState.ALIVE);
         }
-        SnakesProto.GameState.Snake snake = null;
+        boolean isSnakeAdded = false;
         if (newPlayer.getRole() != SnakesProto.NodeRole.VIEWER) {
-            snake = this.addSnakeIfPossible(newPlayer.getId());
-            if (snake != null) {
-                snakesAllCoordinatesByPlayer.put(newPlayer.getId(), getSnakeAllCoordinates(snake));
-            }
+            isSnakeAdded = this.addSnakeIfPossible(newPlayer.getId());
         }
-        if (snake == null) {
+        if (!isSnakeAdded) {
             newPlayer = newPlayer.toBuilder().setRole(SnakesProto.NodeRole.VIEWER).build();
         }
         if (isPlayerUnknown) {
-            sessionGamePlayers = gameState.getPlayers().toBuilder().addPlayers(newPlayer).build();
-            gameState = gameState.toBuilder().setPlayers(sessionGamePlayers).build();
+            sessionGamePlayersBuilder.addPlayers(newPlayer);
         }
+        this.commitStateTransaction();
     }
 
-    private SnakesProto.GameState.Snake addSnakeIfPossible(int playerId) {
-        for (var snake : gameState.getSnakesList()) {
-            if (snake.getPlayerId() == playerId) {
-                return null;
-            }
+    private boolean addSnakeIfPossible(int playerId) {
+        if (snakesStatesByPlayer.containsKey(playerId)) {
+            return false;
         }
-        var freeCoordinatesList = this.getEmptyPlaceForSnake();
+        var direction = SnakesProto.Direction.DOWN;
+        var freeCoordinatesList = this.getEmptyPlaceForSnake(direction);
         if (freeCoordinatesList == null) {
-            return null;
+            return false;
         }
 
         var snakeBuilder = SnakesProto.GameState.Snake.newBuilder();
         for (var coordinate : freeCoordinatesList) {
             snakeBuilder.addPoints(coordinate);
         }
-        var direction = SnakesProto.Direction.DOWN;
         var builtSnake = snakeBuilder
                 .setPlayerId(playerId)
                 .setHeadDirection(direction)
                 .setState(SnakesProto.GameState.Snake.SnakeState.ALIVE)
                 .build();
 
-        this.gameState = gameState.toBuilder().addSnakes(builtSnake).build();
-        this.snakesDirectionsByPlayer.put(builtSnake.getPlayerId(), builtSnake.getHeadDirection());
-        this.directionChangesNumbersByPlayer.put(builtSnake.getPlayerId(), ZERO_DIRECTION_CHANGES);
-        return snakeBuilder.build();
-    }
-
-    private LinkedList<SnakesProto.GameState.Coord> getEmptyPlaceForSnake() {
-        final int yOffset = 4;
-        Random numbersGenerator = new Random();
-        boolean isThereFreeCoordinates = false;
-        int randomX = numbersGenerator.nextInt(getWidthFromGameConfig());
-        int randomY = numbersGenerator.nextInt(getHeightFromGameConfig());
-        for (int i = randomX; i < randomX + getWidthFromGameConfig(); i++) {
-            for (int j = randomY; j < randomY + getHeightFromGameConfig(); j++) {
-                if (isFieldRectangleFree(i, j, i + yOffset, j + yOffset)) {
-                    isThereFreeCoordinates = true;
-                    break;
+        var snakeBody = decodeSnakeBody(builtSnake);
+        this.snakesBodiesByPlayer.put(playerId, snakeBody);
+        this.snakesKeyPointsByPlayer.put(playerId, SnakeKeyPoints.fromSnake(builtSnake));
+        this.snakesHeadDirectionsByPlayer.put(playerId, builtSnake.getHeadDirection());
+        this.snakesStatesByPlayer.put(playerId, builtSnake.getState());
+        this.snakesDirectionsByPlayer.put(playerId, builtSnake.getHeadDirection());
+        this.directionChangesNumbersByPlayer.put(playerId, ZERO_DIRECTION_CHANGES);
+        this.occupySnakeCells(snakeBody);
+        return true;
+    }
+
+    private LinkedList<SnakesProto.GameState.Coord> getEmptyPlaceForSnake(SnakesProto.Direction direction) {
+        int spawnAreaWidth = Math.min(SNAKE_SPAWN_AREA_SIZE, getWidthFromGameConfig());
+        int spawnAreaHeight = Math.min(SNAKE_SPAWN_AREA_SIZE, getHeightFromGameConfig());
+        var summedAreaTable = new SnakeSegmentsSummedAreaTable(occupancyGrid);
+        IntRingBuffer freeAreasCorners = new IntRingBuffer();
+        for (int y = 0; y < getHeightFromGameConfig(); y++) {
+            for (int x = 0; x < getWidthFromGameConfig(); x++) {
+                if (summedAreaTable.countOccupiedCells(x, y, spawnAreaWidth, spawnAreaHeight) == 0) {
+                    freeAreasCorners.addLast(occupancyGrid.getCellIndex(x, y));
                 }
             }
         }
-        if (!isThereFreeCoordinates) {
+        if (freeAreasCorners.isEmpty()) {
             return null;
         }
-        var headCoordinates = convertToFieldCoordinate(randomX, randomY);
-        var offsetFromHead = convertToFieldCoordinate(0, 1);
+        int chosenCorner = freeAreasCorners.get(numbersGenerator.nextInt(freeAreasCorners.size()));
+        var headCoordinates = convertToFieldCoordinate(
+                occupancyGrid.getCellX(chosenCorner) + spawnAreaWidth / 2,
+                occupancyGrid.getCellY(chosenCorner) + spawnAreaHeight / 2);
+        var offsetFromHead = switch (direction) {
+            case UP -> convertToCoordinate(0, 1);
+            case DOWN -> convertToCoordinate(0, -1);
+            case LEFT -> convertToCoordinate(1, 0);
+            case RIGHT -> convertToCoordinate(-1, 0);
+        };
         return new LinkedList<>(List.of(headCoordinates, offsetFromHead));
     }
 
-    private boolean isFieldRectangleFree(int leftCornerX, int rightCornerX,
-                                         int leftCornerY, int rightCornerY) {
-        for (int currentX = leftCornerX; currentX < rightCornerX; currentX++) {
-            for (int currentY = leftCornerY; currentY < rightCornerY; currentY++) {
-                for (var snake : gameState.getSnakesList()) {
-                    for (var snakeCoordinates : getSnakeAllCoordinates(snake)) {
-                        if (convertToFieldCoordinate(currentX, currentY).equals(snakeCoordinates)) {
-                            return false;
-                        }
-                    }
-                }
+    public void makeGameNextStep() {
+        long tickRandomSeed = tickSeedsGenerator.nextLong();
+        this.beginStateTransaction();
+        numbersGenerator = new SplittableRandom(tickRandomSeed);
+        List<GameModelCommand> playerCommands = new ArrayList<>();
+        boolean isReplayable = true;
+        GameModelCommand command;
+        while ((command = pendingCommands.poll()) != null) {
+            if (command instanceof LoadGameStateCommand) {
+                isReplayable = false;
+            } else if (!(command instanceof SteerSnakeCommand)) {
+                playerCommands.add(command);
             }
+            command.executeOn(this);
         }
-        return true;
+        lastTickInputs = new GameTickInputs(tickRandomSeed, playerCommands, getSnakesTurns(), isReplayable);
+        this.advanceGameByStep();
+        this.commitStateTransaction();
+        this.rememberGameState(gameState);
+        this.informAllSubscribers();
     }
 
-    public void makeGameNextStep() {
-        LinkedList<SnakesProto.GameState.Snake> aliveSnakes = new LinkedList<>();
-        for (var snake : gameState.getSnakesList()) {
-            snake = makeSnakeStep(snake);
-            aliveSnakes.add(snake);
+    public GameTickInputs getLastTickInputs() {
+        return lastTickInputs;
+    }
+
+    private Map<Integer, SnakesProto.Direction> getSnakesTurns() {
+        Map<Integer, SnakesProto.Direction> snakesTurns = new TreeMap<>();
+        for (var playerId : snakesStatesByPlayer.keySet()) {
+            var snakeDirection = snakesDirectionsByPlayer.get(playerId);
+            if (snakeDirection != null && !snakeDirection.equals(snakesHeadDirectionsByPlayer.get(playerId))) {
+                snakesTurns.put(playerId, snakeDirection);
+            }
         }
-        LinkedList<Integer> deadSnakeOwners = getDeadSnakeOwners();
-        aliveSnakes = removeDeadOwnerSnakes(deadSnakeOwners, aliveSnakes);
-        gameState = gameState.toBuilder().clearSnakes().build();
-        for (var snake : aliveSnakes) {
-            gameState = gameState.toBuilder().addSnakes(snake).build();
+        return snakesTurns;
+    }
+
+    public boolean applyLockstepTick(int baseStateOrder, GameTickInputs tickInputs, boolean isRebaseRequired) {
+        this.applyPendingCommands();
+        if (baseStateOrder != stateOrder) {
+            return false;
         }
-        this.updateFieldFood();
+        this.beginStateTransaction();
+        if (isRebaseRequired) {
+            this.loadWorkingStateFrom(gameState);
+        }
+        numbersGenerator = new SplittableRandom(tickInputs.randomSeed());
+        for (var playerCommand : tickInputs.playerCommands()) {
+            playerCommand.executeOn(this);
+        }
+        snakesDirectionsByPlayer.clear();
+        snakesDirectionsByPlayer.putAll(tickInputs.snakesTurns());
+        this.advanceGameByStep();
+        this.commitStateTransaction();
+        this.rememberGameState(gameState);
         this.informAllSubscribers();
+        return true;
     }
 
-    private void updateFieldFood() {
-        ArrayList<SnakesProto.GameState.Coord> freeCoordinates = new ArrayList<>();
-        for (int i = 0; i < getWidthFromGameConfig(); i++) {
-            for (int j = 0; j < getHeightFromGameConfig(); j++) {
-                var trackedCoordinate = convertToFieldCoordinate(i, j);
-                boolean isTrackedCoordinateFree = true;
-                for (var snake : gameState.getSnakesList()) {
-                    for (var snakeCoordinate : getSnakeAllCoordinates(snake)) {
-                        if (trackedCoordinate.equals(snakeCoordinate)) {
-                            isTrackedCoordinateFree = false;
-                            break;
-                        }
-                    }
-                    if (!isTrackedCoordinateFree) {
-                        break;
-                    }
-                }
-                if (isTrackedCoordinateFree) {
-                    for (SnakesProto.GameState.Coord foodCoordinate : gameState.getFoodsList()) {
-                        if (trackedCoordinate.equals(foodCoordinate)) {
-                            isTrackedCoordinateFree = false;
-                            break;
-                        }
-                    }
-                }
-                if (isTrackedCoordinateFree) {
-                    freeCoordinates.add(trackedCoordinate);
-                }
+    // Порядок свободных клеток зависит от истории изменений поля; узлы lockstep выравнивают его загрузкой общего состояния
+    public void rebaseWorkingState() {
+        this.beginStateTransaction();
+        this.loadWorkingStateFrom(gameState);
+        this.commitStateTransaction();
+    }
+
+    private void advanceGameByStep() {
+        for (var playerId : snakesStatesByPlayer.keySet()) {
+            makeSnakeStep(playerId);
+        }
+        this.removeDeadOwnerSnakes(getDeadSnakeOwners());
+        this.updateFieldFood();
+        stateOrder++;
+        this.advanceAllQueuedDirections();
+    }
+
+    private void advanceAllQueuedDirections() {
+        for (var playerId : queuedDirectionsByPlayer.keySet()) {
+            advanceQueuedDirections(playerId);
+        }
+    }
+
+    private void advanceQueuedDirections(int playerId) {
+        var queuedDirections = queuedDirectionsByPlayer.get(playerId);
+        var headDirection = snakesHeadDirectionsByPlayer.get(playerId);
+        if (headDirection == null) {
+            queuedDirectionsByPlayer.remove(playerId);
+            return;
+        }
+        var nextDirection = snakesDirectionsByPlayer.get(playerId);
+        while ((nextDirection == null || nextDirection.equals(headDirection)) && !queuedDirections.isEmpty()) {
+            var queuedDirection = queuedDirections.poll();
+            if (!queuedDirection.equals(getReverseDirectionTo(headDirection))) {
+                nextDirection = queuedDirection;
+                snakesDirectionsByPlayer.put(playerId, nextDirection);
             }
         }
-        var gameStateBuilder = gameState.toBuilder();
-        int totalFoodAmount = gameState.getFoodsCount();
-        while (totalFoodAmount < gameState.getConfig().getFoodStatic() +
-                gameState.getConfig().getFoodPerPlayer() * getAliveSnakesNumber()) {
+    }
+
+    private void updateFieldFood() {
+        int totalFoodAmount = occupancyGrid.getFoodCellsNumber();
+        while (totalFoodAmount < gameConfig.getFoodStatic() +
+                gameConfig.getFoodPerPlayer() * getAliveSnakesNumber()) {
             try {
-                SnakesProto.GameState.Coord foodCoordinate = getRandomFreeCoordinate(freeCoordinates);
-                gameStateBuilder.addFoods(foodCoordinate);
-                freeCoordinates.remove(foodCoordinate);
+                SnakesProto.GameState.Coord foodCoordinate = getRandomFreeCoordinate();
+                occupancyGrid.placeFood(foodCoordinate.getX(), foodCoordinate.getY());
                 totalFoodAmount++;
             } catch (ImpossibleOperationException ignored) {
                 break;
             }
         }
-        gameState = gameStateBuilder.build();
     }
 
     private int getAliveSnakesNumber() {
         int aliveSnakesNumber = 0;
         var aliveSnakeIndicator = SnakesProto.GameState.Snake.SnakeState.ALIVE;
-        for (var snake : gameState.getSnakesList()) {
-            if (snake.getState().equals(aliveSnakeIndicator)) {
+        for (var snakeState : snakesStatesByPlayer.values()) {
+            if (snakeState.equals(aliveSnakeIndicator)) {
                 aliveSnakesNumber++;
             }
         }
         return aliveSnakesNumber;
     }
 
-    public SnakesProto.GameState.Coord getRandomFreeCoordinate(
-            ArrayList<SnakesProto.GameState.Coord> freeCoordinates) throws ImpossibleOperationException {
-        if (freeCoordinates.isEmpty()) {
+    public SnakesProto.GameState.Coord getRandomFreeCoordinate() throws ImpossibleOperationException {
+        int freeCellsNumber = occupancyGrid.getFreeCellsNumber();
+        if (freeCellsNumber == 0) {
             throw new ImpossibleOperationException();
         }
-        return freeCoordinates.get(new Random().nextInt(freeCoordinates.size()));
+        return convertCellToCoordinate(occupancyGrid.getFreeCell(numbersGenerator.nextInt(freeCellsNumber)));
     }
 
-    public SnakesProto.GameState.Snake makeSnakeStep(SnakesProto.GameState.Snake snake) {
-        var snakeNextDirection = snakesDirectionsByPlayer.get(snake.getPlayerId());
-        if (snakeNextDirection == null) {
-            System.err.println("AAAAA");
-        }
-        snake = snake.toBuilder().setHeadDirection(snakeNextDirection).build();
-        var snakeCoordinatesAfterStep = changeSnakeCoordinatesAccordingToStep(
-                snakesAllCoordinatesByPlayer.get(snake.getPlayerId()), snake.getHeadDirection());
-        snake = this.getSnakeWithUpdatedKeyCoordinates(snake, snakeCoordinatesAfterStep);
-        snakesAllCoordinatesByPlayer.replace(snake.getPlayerId(), getSnakeAllCoordinates(snake));
-        return snake;
+    private void makeSnakeStep(int playerId) {
+        var snakeNextDirection = snakesDirectionsByPlayer.getOrDefault(playerId,
+                snakesHeadDirectionsByPlayer.get(playerId));
+        snakesHeadDirectionsByPlayer.put(playerId, snakeNextDirection);
+        changeSnakeCoordinatesAccordingToStep(playerId, snakeNextDirection);
     }
 
     private LinkedList<Integer> getDeadSnakeOwners() {
         LinkedList<Integer> deadSnakeOwners = new LinkedList<>();
-        for (int i = 0; i < gameState.getSnakesCount(); i++) {
-            int firstSnakeOwner = gameState.getSnakes(i).getPlayerId();
-            var firstSnakeHead = snakesAllCoordinatesByPlayer.get(firstSnakeOwner).getFirst();
-            for (int j = 0; j < gameState.getSnakesCount(); j++) {
-                int secondSnakeOwner = gameState.getSnakes(j).getPlayerId();
-                int startCheckingIndex = (i != j) ? 0 : 1;
-                if (isHeadCollidedWithBody(firstSnakeHead, snakesAllCoordinatesByPlayer.get(secondSnakeOwner), startCheckingIndex)) {
-                    deadSnakeOwners.add(firstSnakeOwner);
-                }
+        for (var playerId : snakesStatesByPlayer.keySet()) {
+            var snakeHead = snakesBodiesByPlayer.get(playerId).getFirst();
+            if (isHeadCollidedWithBody(snakeHead)) {
+                deadSnakeOwners.add(playerId);
             }
         }
         return deadSnakeOwners;
     }
 
-    private LinkedList<SnakesProto.GameState.Snake> removeDeadOwnerSnakes(LinkedList<Integer> deadSnakeOwners,
-                                                                          LinkedList<SnakesProto.GameState.Snake> snakes) {
-        LinkedList<SnakesProto.GameState.Snake> aliveSnakes = new LinkedList<>();
-        for (var snake : snakes) {
-            boolean isSnakeDead = false;
-            for (var ownerId : deadSnakeOwners) {
-                if (ownerId == snake.getPlayerId()) {
-                    isSnakeDead = true;
-                    this.generateFoodFromDeadSnake(ownerId);
-                    snakesAllCoordinatesByPlayer.remove(ownerId);
-                    break;
-                }
-            }
-            if (!isSnakeDead) {
-                aliveSnakes.add(snake);
-            }
+    private void removeDeadOwnerSnakes(LinkedList<Integer> deadSnakeOwners) {
+        for (var ownerId : deadSnakeOwners) {
+            releaseSnakeCells(snakesBodiesByPlayer.get(ownerId));
+        }
+        for (var ownerId : deadSnakeOwners) {
+            this.generateFoodFromDeadSnake(ownerId);
+            snakesBodiesByPlayer.remove(ownerId);
+            snakesKeyPointsByPlayer.remove(ownerId);
+            snakesHeadDirectionsByPlayer.remove(ownerId);
+            snakesStatesByPlayer.remove(ownerId);
+            this.applyPlayerGameStatus(ownerId, SnakesProto.NodeRole.VIEWER, null);
         }
-        return aliveSnakes;
     }
 
     private void generateFoodFromDeadSnake(int deadSnakeOwnerId) {
-        var gameStateBuilder = gameState.toBuilder();
-        for (var snakeCoordinate : snakesAllCoordinatesByPlayer.get(deadSnakeOwnerId)) {
-            if (isHeadCoordinate(snakeCoordinate, snakesAllCoordinatesByPlayer.get(deadSnakeOwnerId))) {
+        var deadSnakeBody = snakesBodiesByPlayer.get(deadSnakeOwnerId);
+        for (int i = SNAKE_HEAD_INDEX + 1; i < deadSnakeBody.size(); i++) {
+            int cell = deadSnakeBody.get(i);
+            if (!occupancyGrid.isFree(cell)) {
                 continue;
             }
-            int randomPoint = new Random().nextInt(100);
-            if (randomPoint < gameState.getConfig().getDeadFoodProb() * 100) {
-                gameStateBuilder.addFoods(snakeCoordinate);
+            int randomPoint = numbersGenerator.nextInt(100);
+            if (randomPoint < gameConfig.getDeadFoodProb() * 100) {
+                occupancyGrid.placeFood(occupancyGrid.getCellX(cell), occupancyGrid.getCellY(cell));
             }
         }
-        gameState = gameStateBuilder.build();
-        this.changePlayerGameStatus(deadSnakeOwnerId, SnakesProto.NodeRole.VIEWER, SnakesProto.GameState.Snake.SnakeState.ZOMBIE);
     }
 
-    private boolean isHeadCollidedWithBody(SnakesProto.GameState.Coord headCoordinate,
-                                           LinkedList<SnakesProto.GameState.Coord> bodyCoordinates,
-                                           int startCheckingIndex) {
-        for (int i = startCheckingIndex; i < bodyCoordinates.size(); i++) {
-            if (bodyCoordinates.get(i).equals(headCoordinate))
-                return true;
+    private boolean isHeadCollidedWithBody(int headCell) {
+        return occupancyGrid.getSnakeSegmentsNumber(
+                occupancyGrid.getCellX(headCell), occupancyGrid.getCellY(headCell)) > 1;
+    }
+
+    private SnakeBody decodeSnakeBody(SnakesProto.GameState.Snake snake) {
+        SnakeBody snakeBody = new SnakeBody();
+        int currentX = snake.getPoints(SNAKE_HEAD_INDEX).getX();
+        int currentY = snake.getPoints(SNAKE_HEAD_INDEX).getY();
+        snakeBody.addLast(occupancyGrid.getCellIndex(currentX, currentY));
+        for (int i = SNAKE_HEAD_INDEX + 1; i < snake.getPointsCount(); i++) {
+            var offset = snake.getPoints(i);
+            int singleOffsetByY = Integer.signum(offset.getY());
+            for (int y = offset.getY(); y != 0; y -= singleOffsetByY) {
+                currentY += singleOffsetByY;
+                snakeBody.addLast(occupancyGrid.getCellIndex(currentX, currentY));
+            }
+            int singleOffsetByX = Integer.signum(offset.getX());
+            for (int x = offset.getX(); x != 0; x -= singleOffsetByX) {
+                currentX += singleOffsetByX;
+                snakeBody.addLast(occupancyGrid.getCellIndex(currentX, currentY));
+            }
         }
-        return false;
+        return snakeBody;
+    }
+
+    public SnakesProto.GameState getPreviousGameState() {
+        return previousGameState;
+    }
+
+    public long getGameStateChangeTime() {
+        return gameStateChangeTime;
+    }
+
+    public void predictSnakeDirection(int playerId, SnakesProto.Direction chosenDirection) {
+        predictionStateOrdersByPlayer.put(playerId, gameState.getStateOrder());
+        predictedDirectionsByPlayer.put(playerId, chosenDirection);
     }
 
-    public LinkedList<SnakesProto.GameState.Coord> getSnakeAllCoordinates(SnakesProto.GameState.Snake snake) {
+    public LinkedList<SnakesProto.GameState.Coord> getPredictedSnakeCoordinates(SnakesProto.GameState.Snake snake,
+                                                                              SnakesProto.GameState snakeGameState) {
+        var snakeGameConfig = snakeGameState.getConfig();
+        var snakeCoordinates = getSnakeAllCoordinates(snake, snakeGameConfig);
+        var nextDirection = predictedDirectionsByPlayer.getOrDefault(snake.getPlayerId(), snake.getHeadDirection());
+        if (nextDirection.equals(getReverseDirectionTo(snake.getHeadDirection()))) {
+            nextDirection = snake.getHeadDirection();
+        }
+        var snakeHead = snakeCoordinates.getFirst();
+        var nextSnakeHead = switch (nextDirection) {
+            case UP -> convertToFieldCoordinate(snakeHead.getX(), snakeHead.getY() - 1, snakeGameConfig);
+            case DOWN -> convertToFieldCoordinate(snakeHead.getX(), snakeHead.getY() + 1, snakeGameConfig);
+            case LEFT -> convertToFieldCoordinate(snakeHead.getX() - 1, snakeHead.getY(), snakeGameConfig);
+            case RIGHT -> convertToFieldCoordinate(snakeHead.getX() + 1, snakeHead.getY(), snakeGameConfig);
+        };
+        snakeCoordinates.addFirst(nextSnakeHead);
+        if (!snakeGameState.getFoodsList().contains(nextSnakeHead)) {
+            snakeCoordinates.removeLast();
+        }
+        return snakeCoordinates;
+    }
+
+    public LinkedList<SnakesProto.GameState.Coord> getSnakeAllCoordinates(SnakesProto.GameState.Snake snake,
+                                                                         SnakesProto.GameConfig snakeGameConfig) {
         LinkedList<SnakesProto.GameState.Coord> keyCoordinates = new LinkedList<>();
-        for (SnakesProto.GameState.Coord coordinate : snake.getPointsList()) {
-            if (isHeadCoordinate(coordinate, snake.getPointsList())) {
-                keyCoordinates.add(coordinate);
-                continue;
-            }
+        keyCoordinates.add(snake.getPoints(SNAKE_HEAD_INDEX));
+        for (int i = SNAKE_HEAD_INDEX + 1; i < snake.getPointsCount(); i++) {
+            var coordinate = snake.getPoints(i);
 
             if (isYOffsetExist(coordinate)) {
                 int y = coordinate.getY();
@@ -376,7 +651,8 @@ public class GameModel extends Publisher {
                 while (y != 0) {
                     keyCoordinates.add(convertToFieldCoordinate(
                             keyCoordinates.getLast().getX(),
-                            keyCoordinates.getLast().getY() + singleOffset));
+                            keyCoordinates.getLast().getY() + singleOffset,
+                            snakeGameConfig));
                     y -= singleOffset;
                 }
             }
@@ -387,7 +663,8 @@ public class GameModel extends Publisher {
                 while (x != 0) {
                     keyCoordinates.add(convertToFieldCoordinate(
                             keyCoordinates.getLast().getX() + singleOffset,
-                            keyCoordinates.getLast().getY()));
+                            keyCoordinates.getLast().getY(),
+                            snakeGameConfig));
                     x -= singleOffset;
                 }
             }
@@ -395,11 +672,6 @@ public class GameModel extends Publisher {
         return keyCoordinates;
     }
 
-    private boolean isHeadCoordinate(SnakesProto.GameState.Coord coordinate,
-                                     List<SnakesProto.GameState.Coord> coordinatesList) {
-        return coordinatesList.get(SNAKE_HEAD_INDEX).equals(coordinate);
-    }
-
     private boolean isYOffsetExist(SnakesProto.GameState.Coord coordinate) {
         return 0 != coordinate.getY();
     }
@@ -408,130 +680,83 @@ public class GameModel extends Publisher {
         return 0 != coordinate.getX();
     }
 
-    private LinkedList<SnakesProto.GameState.Coord> changeSnakeCoordinatesAccordingToStep(
-            LinkedList<SnakesProto.GameState.Coord> snakeCoordinates, SnakesProto.Direction chosenDirection) {
-        int nextX = snakeCoordinates.getFirst().getX();
-        int nextY = snakeCoordinates.getFirst().getY();
+    private void changeSnakeCoordinatesAccordingToStep(int playerId, SnakesProto.Direction chosenDirection) {
+        var snakeBody = snakesBodiesByPlayer.get(playerId);
+        var snakeKeyPoints = snakesKeyPointsByPlayer.get(playerId);
+        int stepByX = 0;
+        int stepByY = 0;
         switch (chosenDirection) {
-            case UP -> nextY--;
-            case DOWN -> nextY++;
-            case LEFT -> nextX--;
-            case RIGHT -> nextX++;
-        }
-        snakeCoordinates.addFirst(convertToFieldCoordinate(nextX, nextY));
-        if (isThereFoodByCoordinate(snakeCoordinates.getFirst())) {
-            removeFoodFromCoordinate(snakeCoordinates.getFirst());
+            case UP -> stepByY--;
+            case DOWN -> stepByY++;
+            case LEFT -> stepByX--;
+            case RIGHT -> stepByX++;
+        }
+        int nextHeadCell = occupancyGrid.getCellIndex(
+                occupancyGrid.getCellX(snakeBody.getFirst()) + stepByX,
+                occupancyGrid.getCellY(snakeBody.getFirst()) + stepByY);
+        var headCoordinate = convertCellToCoordinate(nextHeadCell);
+        snakeBody.addFirst(nextHeadCell);
+        snakeKeyPoints.moveHead(headCoordinate.getX(), headCoordinate.getY(), stepByX, stepByY);
+        if (isThereFoodByCoordinate(headCoordinate)) {
+            removeFoodFromCoordinate(headCoordinate);
         } else {
-            snakeCoordinates.removeLast();
+            int tailCell = snakeBody.removeLast();
+            occupancyGrid.releaseBySnake(occupancyGrid.getCellX(tailCell), occupancyGrid.getCellY(tailCell));
+            snakeKeyPoints.shrinkTail();
         }
-        return snakeCoordinates;
+        occupancyGrid.occupyBySnake(headCoordinate.getX(), headCoordinate.getY());
     }
 
     private void removeFoodFromCoordinate(SnakesProto.GameState.Coord coordinate) {
-        LinkedList<SnakesProto.GameState.Coord> leftoverFood = new LinkedList<>();
-        for (var foodCoordinate : gameState.getFoodsList()) {
-            if (!coordinate.equals(foodCoordinate)) {
-                leftoverFood.add(foodCoordinate);
-            }
-        }
-        var gameStateBuilder = gameState.toBuilder();
-        gameStateBuilder.clearFoods();
-        for (var foodCoordinate : leftoverFood) {
-            gameStateBuilder.addFoods(foodCoordinate);
-        }
-        gameState = gameStateBuilder.build();
+        occupancyGrid.removeFood(coordinate.getX(), coordinate.getY());
     }
 
     private boolean isThereFoodByCoordinate(SnakesProto.GameState.Coord coordinate) {
-        for (var foodCoordinate : gameState.getFoodsList()) {
-            if (coordinate.equals(foodCoordinate)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private SnakesProto.GameState.Snake getSnakeWithUpdatedKeyCoordinates(
-            SnakesProto.GameState.Snake snake, LinkedList<SnakesProto.GameState.Coord> snakeCoordinatesAfterStep) {
-        var snakeBuilder = snake.toBuilder();
-        snakeBuilder.clearPoints();
-        LinkedList<SnakesProto.GameState.Coord> keyCoordinates = new LinkedList<>();
-        keyCoordinates.add(snakeCoordinatesAfterStep.getFirst());
-        snakeBuilder.addPoints(keyCoordinates.getFirst());
-
-        int differenceByXWithPrevious = transformXDifferenceAccordingToTorus(
-                snakeCoordinatesAfterStep.get(1).getX() - snakeCoordinatesAfterStep.getFirst().getX());
-        int differenceByYWithPrevious = transformYDifferenceAccordingToTorus(
-                snakeCoordinatesAfterStep.get(1).getY() - snakeCoordinatesAfterStep.getFirst().getY());
-
-        for (int i = 2; i < snakeCoordinatesAfterStep.size(); i++) {
-            int currentDifferenceByX = transformXDifferenceAccordingToTorus(
-                    snakeCoordinatesAfterStep.get(i).getX() - snakeCoordinatesAfterStep.get(i - 1).getX());
-            int currentDifferenceByY = transformYDifferenceAccordingToTorus(
-                    snakeCoordinatesAfterStep.get(i).getY() - snakeCoordinatesAfterStep.get(i - 1).getY());
-
-            if ((currentDifferenceByX == 0 && differenceByXWithPrevious != 0) ||
-                    (currentDifferenceByY == 0 && differenceByYWithPrevious != 0)) {
-                keyCoordinates.add(convertToCoordinate(differenceByXWithPrevious, differenceByYWithPrevious));
-                snakeBuilder.addPoints(keyCoordinates.getLast());
-                differenceByXWithPrevious = currentDifferenceByX;
-                differenceByYWithPrevious = currentDifferenceByY;
-            } else {
-                differenceByXWithPrevious += currentDifferenceByX;
-                differenceByYWithPrevious += currentDifferenceByY;
-            }
-        }
-        snakeBuilder.addPoints(convertToCoordinate(differenceByXWithPrevious, differenceByYWithPrevious));
-        return snakeBuilder.build();
+        return occupancyGrid.isFood(coordinate.getX(), coordinate.getY());
     }
 
-    private int transformYDifferenceAccordingToTorus(int difference) {
-        if (-difference == getHeightFromGameConfig() - 1) {
-            return 1;
-        }
-        if (difference == getHeightFromGameConfig() - 1) {
-            return -1;
-        }
-        return Integer.compare(difference, 0);
-    }
-
-    private int transformXDifferenceAccordingToTorus(int difference) {
-        if (-difference == getWidthFromGameConfig() - 1) {
-            return 1;
-        }
-        if (difference == getHeightFromGameConfig() - 1) {
-            return -1;
-        }
-        return Integer.compare(difference, 0);
+    private SnakesProto.GameState.Coord convertToFieldCoordinate(int x, int y) {
+        return convertToFieldCoordinate(x, y, gameConfig);
     }
 
-    private SnakesProto.GameState.Coord convertToFieldCoordinate(int x, int y) {
+    private SnakesProto.GameState.Coord convertToFieldCoordinate(int x, int y, SnakesProto.GameConfig fieldConfig) {
         return SnakesProto.GameState.Coord.newBuilder()
-                .setX((x + getWidthFromGameConfig()) % getWidthFromGameConfig())
-                .setY((y + getHeightFromGameConfig()) % getHeightFromGameConfig())
+                .setX((x + fieldConfig.getWidth()) % fieldConfig.getWidth())
+                .setY((y + fieldConfig.getHeight()) % fieldConfig.getHeight())
                 .build();
     }
 
+    private SnakesProto.GameState.Coord convertCellToCoordinate(int cell) {
+        return convertToCoordinate(occupancyGrid.getCellX(cell), occupancyGrid.getCellY(cell));
+    }
+
     private SnakesProto.GameState.Coord convertToCoordinate(int x, int y) {
         return SnakesProto.GameState.Coord.newBuilder().setX(x).setY(y).build();
     }
 
-    public void changeSnakeDirectionById(SnakesProto.Direction chosenDirection, int playerId, long directionChangesNumber) {
-        SnakesProto.GameState.Snake playerSnake = null;
+    public void changeSnakeDirectionById(List<SnakesProto.Direction> chosenDirections, int playerId,
+                                         long directionChangesNumber) {
+        this.submitCommand(new SteerSnakeCommand(chosenDirections, playerId, directionChangesNumber));
+    }
+
+    void applySnakeDirectionChange(List<SnakesProto.Direction> chosenDirections, int playerId,
+                                   long directionChangesNumber) {
+        var snakeState = snakesStatesByPlayer.get(playerId);
         var zombieSnakeIndicator = SnakesProto.GameState.Snake.SnakeState.ZOMBIE;
-        for (var snake : gameState.getSnakesList()) {
-            if (snake.getPlayerId() == playerId && !snake.getState().equals(zombieSnakeIndicator)) {
-                playerSnake = snake;
-                break;
-            }
+        if (snakeState == null || snakeState.equals(zombieSnakeIndicator)) {
+            return;
         }
-
-        if (playerSnake != null && !playerSnake.getHeadDirection().equals(getReverseDirectionTo(chosenDirection))) {
-            if (directionChangesNumber > directionChangesNumbersByPlayer.get(playerId)) {
-                directionChangesNumbersByPlayer.put(playerId, directionChangesNumber);
-                snakesDirectionsByPlayer.put(playerSnake.getPlayerId(), chosenDirection);
+        if (directionChangesNumber <= directionChangesNumbersByPlayer.getOrDefault(playerId, ZERO_DIRECTION_CHANGES)) {
+            return;
+        }
+        directionChangesNumbersByPlayer.put(playerId, directionChangesNumber);
+        var queuedDirections = queuedDirectionsByPlayer.computeIfAbsent(playerId, id -> new ArrayDeque<>());
+        for (var chosenDirection : chosenDirections) {
+            if (queuedDirections.size() < MAX_QUEUED_DIRECTIONS) {
+                queuedDirections.add(chosenDirection);
             }
         }
+        this.advanceQueuedDirections(playerId);
     }
 
     private SnakesProto.Direction getReverseDirectionTo(SnakesProto.Direction direction) {
@@ -547,56 +772,49 @@ public class GameModel extends Publisher {
         activitiesTimestampsByPlayer.put(playerId, Instant.now());
     }
 
-    public void rebuiltGameModel(int playerId) {
-        snakesAllCoordinatesByPlayer = new ConcurrentHashMap<>();
-        snakesDirectionsByPlayer = new ConcurrentHashMap<>();
-        directionChangesNumbersByPlayer = new ConcurrentHashMap<>();
+    public void rebuiltGameModel(int previousMasterId, int playerId) {
+        this.applyPendingCommands();
+        this.beginStateTransaction();
         activitiesTimestampsByPlayer = new ConcurrentHashMap<>();
-        this.changePlayerGameStatus(sessionMasterId, SnakesProto.NodeRole.VIEWER, SnakesProto.GameState.Snake.SnakeState.ZOMBIE);
-        this.changePlayerGameStatus(playerId, SnakesProto.NodeRole.MASTER, SnakesProto.GameState.Snake.SnakeState.ALIVE);
+        this.applyPlayerGameStatus(previousMasterId, SnakesProto.NodeRole.VIEWER, SnakesProto.GameState.Snake.SnakeState.ZOMBIE);
+        this.applyPlayerGameStatus(playerId, SnakesProto.NodeRole.MASTER, SnakesProto.GameState.Snake.SnakeState.ALIVE);
 
         this.sessionMasterId = playerId;
 
-        sessionGamePlayers = gameState.getPlayers();
-        for (var snake : gameState.getSnakesList()) {
-            snakesAllCoordinatesByPlayer.put(snake.getPlayerId(), getSnakeAllCoordinates(snake));
-            snakesDirectionsByPlayer.put(snake.getPlayerId(), snake.getHeadDirection());
-        }
-        for (var player : gameState.getPlayers().getPlayersList()) {
-            directionChangesNumbersByPlayer.put(player.getId(), ZERO_DIRECTION_CHANGES);
+        for (var player : sessionGamePlayersBuilder.getPlayersList()) {
+            directionChangesNumbersByPlayer.putIfAbsent(player.getId(), ZERO_DIRECTION_CHANGES);
             activitiesTimestampsByPlayer.put(player.getId(), Instant.now());
         }
+        this.commitStateTransaction();
         this.informAllSubscribers();
     }
 
     public void changePlayerGameStatus(int playerId, SnakesProto.NodeRole playerRole,
                                        SnakesProto.GameState.Snake.SnakeState snakeState) {
-        var overwritingPlayers = SnakesProto.GamePlayers.newBuilder();
-        for (SnakesProto.GamePlayer existingPlayer : gameState.getPlayers().getPlayersList()) {
-            if (existingPlayer.getId() == playerId && playerRole != null) {
-                overwritingPlayers.addPlayers(existingPlayer.toBuilder().setRole(playerRole).build());
-            } else {
-                overwritingPlayers.addPlayers(existingPlayer);
-            }
-        }
+        this.submitCommand(new ChangePlayerStatusCommand(playerId, playerRole, snakeState));
+    }
 
-        LinkedList<SnakesProto.GameState.Snake> overwritingSnakes = new LinkedList<>();
-        for (var existingSnakes : gameState.getSnakesList()) {
-            if (existingSnakes.getPlayerId() == playerId && snakeState != null) {
-                overwritingSnakes.add(existingSnakes.toBuilder().setState(snakeState).build());
-            } else {
-                overwritingSnakes.add(existingSnakes);
-            }
+    void applyPlayerGameStatus(int playerId, SnakesProto.NodeRole playerRole,
+                               SnakesProto.GameState.Snake.SnakeState snakeState) {
+        this.beginStateTransaction();
+        int playerIndex = getPlayerIndexById(playerId);
+        if (playerIndex != ABSENT_PLAYER_INDEX && playerRole != null) {
+            var existingPlayer = sessionGamePlayersBuilder.getPlayers(playerIndex);
+            sessionGamePlayersBuilder.setPlayers(playerIndex, existingPlayer.toBuilder().setRole(playerRole).build());
+        }
+        if (snakeState != null && snakesStatesByPlayer.containsKey(playerId)) {
+            snakesStatesByPlayer.put(playerId, snakeState);
         }
+        this.commitStateTransaction();
+    }
 
-        SnakesProto.GameState.Builder newGameStateBuilder = gameState.toBuilder();
-        newGameStateBuilder.clearSnakes();
-        newGameStateBuilder.clearPlayers();
-        newGameStateBuilder.setPlayers(overwritingPlayers.build());
-        for (var snake : overwritingSnakes) {
-            newGameStateBuilder.addSnakes(snake);
+    private int getPlayerIndexById(int playerId) {
+        for (int i = 0; i < sessionGamePlayersBuilder.getPlayersCount(); i++) {
+            if (sessionGamePlayersBuilder.getPlayers(i).getId() == playerId) {
+                return i;
+            }
         }
-        this.gameState = newGameStateBuilder.build();
+        return ABSENT_PLAYER_INDEX;
     }
 
     public SnakesProto.GamePlayer getPlayerById(int playerId) {
@@ -608,6 +826,19 @@ public class GameModel extends Publisher {
         return null;
     }
 
+    public int getPlayerSnakeLength(int playerId) {
+        for (var snake : gameState.getSnakesList()) {
+            if (snake.getPlayerId() == playerId) {
+                int snakeLength = 1;
+                for (int i = SNAKE_HEAD_INDEX + 1; i < snake.getPointsCount(); i++) {
+                    snakeLength += Math.abs(snake.getPoints(i).getX()) + Math.abs(snake.getPoints(i).getY());
+                }
+                return snakeLength;
+            }
+        }
+        return 0;
+    }
+
     public boolean isPlayerSnakeAlive(int playerId) {
         var aliveSnakeIndicator = SnakesProto.GameState.Snake.SnakeState.ALIVE;
         for (var snake : gameState.getSnakesList()) {
@@ -622,7 +853,7 @@ public class GameModel extends Publisher {
         return "\nGameModel{" +
                 "\ndirectionChangesNumbersByPlayer=" + directionChangesNumbersByPlayer +
                 "\nactivitiesTimestampsByPlayer=" + activitiesTimestampsByPlayer +
-                "\nsnakesAllCoordinatesByPlayer=" + snakesAllCoordinatesByPlayer +
+                "\nsnakesBodiesByPlayer=" + snakesBodiesByPlayer +
                 "\nsnakesDirectionsByPlayer=" + snakesDirectionsByPlayer +
                 "\nsessionGamePlayers=" + sessionGamePlayers +
                 "\ngameState=" + gameState +
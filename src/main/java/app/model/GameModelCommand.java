@@ -0,0 +1,5 @@
+package app.model;
+
+public interface GameModelCommand {
+    void executeOn(GameModel gameModel);
+}
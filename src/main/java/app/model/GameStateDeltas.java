@@ -0,0 +1,125 @@
+package app.model;
+
+import proto.SnakesProto;
+
+import java.util.*;
+
+public class GameStateDeltas {
+    public static SnakesProto.GameMessage.StateDeltaMsg makeDelta(SnakesProto.GameState baseState,
+                                                                  SnakesProto.GameState actualState) {
+        var deltaBuilder = SnakesProto.GameMessage.StateDeltaMsg.newBuilder()
+                .setBaseStateOrder(baseState.getStateOrder())
+                .setStateOrder(actualState.getStateOrder());
+
+        Map<Integer, SnakesProto.GameState.Snake> baseSnakes = new HashMap<>();
+        for (var snake : baseState.getSnakesList()) {
+            baseSnakes.put(snake.getPlayerId(), snake);
+        }
+        for (var snake : actualState.getSnakesList()) {
+            if (!snake.equals(baseSnakes.remove(snake.getPlayerId()))) {
+                deltaBuilder.addChangedSnakes(snake);
+            }
+        }
+        deltaBuilder.addAllRemovedSnakes(baseSnakes.keySet());
+
+        Set<SnakesProto.GameState.Coord> baseFoods = new HashSet<>(baseState.getFoodsList());
+        for (var food : actualState.getFoodsList()) {
+            if (!baseFoods.remove(food)) {
+                deltaBuilder.addAddedFoods(food);
+            }
+        }
+        deltaBuilder.addAllRemovedFoods(baseFoods);
+
+        Map<Integer, SnakesProto.GamePlayer> basePlayers = new HashMap<>();
+        for (var player : baseState.getPlayers().getPlayersList()) {
+            basePlayers.put(player.getId(), player);
+        }
+        for (var player : actualState.getPlayers().getPlayersList()) {
+            if (!player.equals(basePlayers.remove(player.getId()))) {
+                deltaBuilder.addChangedPlayers(player);
+            }
+        }
+        deltaBuilder.addAllRemovedPlayers(basePlayers.keySet());
+
+        Map<List<Integer>, SnakesProto.GameState.ChunkSummary> baseChunkSummaries = new HashMap<>();
+        for (var chunkSummary : baseState.getChunkSummariesList()) {
+            baseChunkSummaries.put(getChunkKey(chunkSummary), chunkSummary);
+        }
+        for (var chunkSummary : actualState.getChunkSummariesList()) {
+            if (!chunkSummary.equals(baseChunkSummaries.remove(getChunkKey(chunkSummary)))) {
+                deltaBuilder.addChangedChunkSummaries(chunkSummary);
+            }
+        }
+        for (var removedChunkSummary : baseChunkSummaries.values()) {
+            deltaBuilder.addChangedChunkSummaries(SnakesProto.GameState.ChunkSummary.newBuilder()
+                    .setChunkX(removedChunkSummary.getChunkX())
+                    .setChunkY(removedChunkSummary.getChunkY()));
+        }
+        return deltaBuilder.build();
+    }
+
+    public static SnakesProto.GameState applyDelta(SnakesProto.GameState baseState,
+                                                   SnakesProto.GameMessage.StateDeltaMsg stateDelta) {
+        var stateBuilder = SnakesProto.GameState.newBuilder()
+                .setStateOrder(stateDelta.getStateOrder())
+                .setConfig(baseState.getConfig());
+
+        TreeMap<Integer, SnakesProto.GameState.Snake> snakes = new TreeMap<>();
+        for (var snake : baseState.getSnakesList()) {
+            snakes.put(snake.getPlayerId(), snake);
+        }
+        for (var removedSnakeOwner : stateDelta.getRemovedSnakesList()) {
+            snakes.remove(removedSnakeOwner);
+        }
+        for (var snake : stateDelta.getChangedSnakesList()) {
+            snakes.put(snake.getPlayerId(), snake);
+        }
+        stateBuilder.addAllSnakes(snakes.values());
+
+        Set<SnakesProto.GameState.Coord> removedFoods = new HashSet<>(stateDelta.getRemovedFoodsList());
+        List<SnakesProto.GameState.Coord> foods = new ArrayList<>();
+        for (var food : baseState.getFoodsList()) {
+            if (!removedFoods.contains(food)) {
+                foods.add(food);
+            }
+        }
+        foods.addAll(stateDelta.getAddedFoodsList());
+        // Мастер публикует еду в порядке индексов клеток, от него зависит порядок свободных клеток после загрузки
+        foods.sort(Comparator.comparingInt(SnakesProto.GameState.Coord::getY)
+                .thenComparingInt(SnakesProto.GameState.Coord::getX));
+        stateBuilder.addAllFoods(foods);
+
+        Map<Integer, SnakesProto.GamePlayer> changedPlayers = new LinkedHashMap<>();
+        for (var player : stateDelta.getChangedPlayersList()) {
+            changedPlayers.put(player.getId(), player);
+        }
+        Set<Integer> removedPlayers = new HashSet<>(stateDelta.getRemovedPlayersList());
+        var playersBuilder = SnakesProto.GamePlayers.newBuilder();
+        for (var player : baseState.getPlayers().getPlayersList()) {
+            if (!removedPlayers.contains(player.getId())) {
+                playersBuilder.addPlayers(Objects.requireNonNullElse(changedPlayers.remove(player.getId()), player));
+            }
+        }
+        playersBuilder.addAllPlayers(changedPlayers.values());
+
+        TreeMap<List<Integer>, SnakesProto.GameState.ChunkSummary> chunkSummaries =
+                new TreeMap<>(Comparator.<List<Integer>, Integer>comparing(key -> key.get(1))
+                        .thenComparing(key -> key.get(0)));
+        for (var chunkSummary : baseState.getChunkSummariesList()) {
+            chunkSummaries.put(getChunkKey(chunkSummary), chunkSummary);
+        }
+        for (var chunkSummary : stateDelta.getChangedChunkSummariesList()) {
+            if (chunkSummary.getSnakeCells() == 0 && chunkSummary.getFoodCells() == 0) {
+                chunkSummaries.remove(getChunkKey(chunkSummary));
+            } else {
+                chunkSummaries.put(getChunkKey(chunkSummary), chunkSummary);
+            }
+        }
+        stateBuilder.addAllChunkSummaries(chunkSummaries.values());
+        return stateBuilder.setPlayers(playersBuilder).build();
+    }
+
+    private static List<Integer> getChunkKey(SnakesProto.GameState.ChunkSummary chunkSummary) {
+        return List.of(chunkSummary.getChunkX(), chunkSummary.getChunkY());
+    }
+}
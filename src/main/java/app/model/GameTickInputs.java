@@ -0,0 +1,12 @@
+package app.model;
+
+import proto.SnakesProto;
+
+import java.util.List;
+import java.util.Map;
+
+public record GameTickInputs(long randomSeed,
+                             List<GameModelCommand> playerCommands,
+                             Map<Integer, SnakesProto.Direction> snakesTurns,
+                             boolean isReplayable) {
+}
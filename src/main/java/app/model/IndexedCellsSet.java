@@ -0,0 +1,101 @@
+package app.model;
+
+import java.util.Arrays;
+
+public class IndexedCellsSet {
+    private static final int ABSENT_CELL_POSITION = -1;
+
+    private final int[] cells;
+    private final int[] positionsByCell;
+    private final int[] cellsStamps;
+    private final int[] positionsStamps;
+    private int currentStamp = 0;
+    private boolean isFilled = false;
+    private int size;
+
+    public IndexedCellsSet(int cellsNumber) {
+        this.cells = new int[cellsNumber];
+        this.positionsByCell = new int[cellsNumber];
+        this.cellsStamps = new int[cellsNumber];
+        this.positionsStamps = new int[cellsNumber];
+        this.clear();
+    }
+
+    public void fill() {
+        renewStamp();
+        isFilled = true;
+        size = cells.length;
+    }
+
+    public void clear() {
+        renewStamp();
+        isFilled = false;
+        size = 0;
+    }
+
+    private void renewStamp() {
+        currentStamp++;
+        if (currentStamp == Integer.MAX_VALUE) {
+            Arrays.fill(cellsStamps, 0);
+            Arrays.fill(positionsStamps, 0);
+            currentStamp = 1;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int cell) {
+        return getPosition(cell) != ABSENT_CELL_POSITION;
+    }
+
+    public int get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + " is out of cells set of size " + size);
+        }
+        return getCell(position);
+    }
+
+    public void add(int cell) {
+        if (contains(cell)) {
+            return;
+        }
+        setCell(size, cell);
+        setPosition(cell, size);
+        size++;
+    }
+
+    public void remove(int cell) {
+        int removedPosition = getPosition(cell);
+        if (removedPosition == ABSENT_CELL_POSITION) {
+            return;
+        }
+        int lastCell = getCell(size - 1);
+        setCell(removedPosition, lastCell);
+        setPosition(lastCell, removedPosition);
+        setPosition(cell, ABSENT_CELL_POSITION);
+        size--;
+    }
+
+    private int getCell(int position) {
+        return (cellsStamps[position] == currentStamp) ? cells[position] : position;
+    }
+
+    private int getPosition(int cell) {
+        if (positionsStamps[cell] == currentStamp) {
+            return positionsByCell[cell];
+        }
+        return isFilled ? cell : ABSENT_CELL_POSITION;
+    }
+
+    private void setCell(int position, int cell) {
+        cells[position] = cell;
+        cellsStamps[position] = currentStamp;
+    }
+
+    private void setPosition(int cell, int position) {
+        positionsByCell[cell] = position;
+        positionsStamps[cell] = currentStamp;
+    }
+}
@@ -0,0 +1,85 @@
+package app.model;
+
+import java.util.NoSuchElementException;
+
+public class IntRingBuffer {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] values = new int[INITIAL_CAPACITY];
+    private int headPosition = 0;
+    private int size = 0;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of ring buffer of size " + size);
+        }
+        return values[(headPosition + index) & (values.length - 1)];
+    }
+
+    public int getFirst() {
+        checkNotEmpty();
+        return values[headPosition];
+    }
+
+    public int getLast() {
+        checkNotEmpty();
+        return values[(headPosition + size - 1) & (values.length - 1)];
+    }
+
+    public void addFirst(int value) {
+        growIfFull();
+        headPosition = (headPosition - 1) & (values.length - 1);
+        values[headPosition] = value;
+        size++;
+    }
+
+    public void addLast(int value) {
+        growIfFull();
+        values[(headPosition + size) & (values.length - 1)] = value;
+        size++;
+    }
+
+    public void set(int index, int value) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of ring buffer of size " + size);
+        }
+        values[(headPosition + index) & (values.length - 1)] = value;
+    }
+
+    public int removeLast() {
+        int lastValue = getLast();
+        size--;
+        return lastValue;
+    }
+
+    public void clear() {
+        headPosition = 0;
+        size = 0;
+    }
+
+    private void checkNotEmpty() {
+        if (size == 0) {
+            throw new NoSuchElementException("Ring buffer is empty");
+        }
+    }
+
+    private void growIfFull() {
+        if (size < values.length) {
+            return;
+        }
+        int[] grownValues = new int[values.length * 2];
+        for (int i = 0; i < size; i++) {
+            grownValues[i] = values[(headPosition + i) & (values.length - 1)];
+        }
+        values = grownValues;
+        headPosition = 0;
+    }
+}
@@ -0,0 +1,119 @@
+package app.model;
+
+import proto.SnakesProto;
+
+import java.util.*;
+
+public class InterestChunks {
+    private static final int INTEREST_RADIUS_IN_CHUNKS = 1;
+    private static final int SNAKE_HEAD_INDEX = 0;
+
+    private final SnakesProto.GameState fullState;
+    private final int chunkSize;
+    private final int chunksNumberX;
+    private final int chunksNumberY;
+    private final TreeMap<Integer, Chunk> chunksByIndex = new TreeMap<>();
+    private final Map<Integer, Integer> headChunksByPlayer = new HashMap<>();
+
+    public InterestChunks(SnakesProto.GameState fullState) {
+        this.fullState = fullState;
+        var gameConfig = fullState.getConfig();
+        this.chunkSize = gameConfig.getInterestChunkSize();
+        this.chunksNumberX = (gameConfig.getWidth() + chunkSize - 1) / chunkSize;
+        this.chunksNumberY = (gameConfig.getHeight() + chunkSize - 1) / chunkSize;
+        for (var snake : fullState.getSnakesList()) {
+            indexSnake(snake, gameConfig);
+        }
+        for (var food : fullState.getFoodsList()) {
+            getChunk(getChunkIndex(food.getX(), food.getY())).foods.add(food);
+        }
+    }
+
+    private void indexSnake(SnakesProto.GameState.Snake snake, SnakesProto.GameConfig gameConfig) {
+        var snakeHead = snake.getPoints(SNAKE_HEAD_INDEX);
+        int x = snakeHead.getX();
+        int y = snakeHead.getY();
+        headChunksByPlayer.put(snake.getPlayerId(), getChunkIndex(x, y));
+        addSnakeCell(snake, x, y);
+        for (int i = SNAKE_HEAD_INDEX + 1; i < snake.getPointsCount(); i++) {
+            var offset = snake.getPoints(i);
+            int stepX = Integer.signum(offset.getX());
+            int stepY = Integer.signum(offset.getY());
+            for (int step = 0; step < Math.abs(offset.getX()) + Math.abs(offset.getY()); step++) {
+                x = Math.floorMod(x + stepX, gameConfig.getWidth());
+                y = Math.floorMod(y + stepY, gameConfig.getHeight());
+                addSnakeCell(snake, x, y);
+            }
+        }
+    }
+
+    private void addSnakeCell(SnakesProto.GameState.Snake snake, int x, int y) {
+        var chunk = getChunk(getChunkIndex(x, y));
+        chunk.snakeCellsNumber++;
+        chunk.snakesOwners.add(snake.getPlayerId());
+    }
+
+    private Chunk getChunk(int chunkIndex) {
+        return chunksByIndex.computeIfAbsent(chunkIndex, index -> new Chunk());
+    }
+
+    private int getChunkIndex(int x, int y) {
+        return (y / chunkSize) * chunksNumberX + x / chunkSize;
+    }
+
+    public SnakesProto.GameState makeInterestState(int receiverId) {
+        Set<Integer> interestChunks = getInterestChunks(receiverId);
+        Set<Integer> interestSnakesOwners = new HashSet<>();
+        Set<SnakesProto.GameState.Coord> interestFoods = new HashSet<>();
+        var stateBuilder = SnakesProto.GameState.newBuilder()
+                .setStateOrder(fullState.getStateOrder())
+                .setConfig(fullState.getConfig())
+                .setPlayers(fullState.getPlayers());
+        for (var chunk : chunksByIndex.entrySet()) {
+            int chunkIndex = chunk.getKey();
+            if (interestChunks.contains(chunkIndex)) {
+                interestSnakesOwners.addAll(chunk.getValue().snakesOwners);
+                interestFoods.addAll(chunk.getValue().foods);
+            } else {
+                stateBuilder.addChunkSummaries(SnakesProto.GameState.ChunkSummary.newBuilder()
+                        .setChunkX(chunkIndex % chunksNumberX)
+                        .setChunkY(chunkIndex / chunksNumberX)
+                        .setSnakeCells(chunk.getValue().snakeCellsNumber)
+                        .setFoodCells(chunk.getValue().foods.size()));
+            }
+        }
+        for (var snake : fullState.getSnakesList()) {
+            if (interestSnakesOwners.contains(snake.getPlayerId())) {
+                stateBuilder.addSnakes(snake);
+            }
+        }
+        for (var food : fullState.getFoodsList()) {
+            if (interestFoods.contains(food)) {
+                stateBuilder.addFoods(food);
+            }
+        }
+        return stateBuilder.build();
+    }
+
+    // Участки вокруг головы змеи получателя; игрок без змеи смотрит на центр поля
+    private Set<Integer> getInterestChunks(int receiverId) {
+        int centerChunkIndex = headChunksByPlayer.getOrDefault(receiverId, getChunkIndex(
+                fullState.getConfig().getWidth() / 2, fullState.getConfig().getHeight() / 2));
+        int centerChunkX = centerChunkIndex % chunksNumberX;
+        int centerChunkY = centerChunkIndex / chunksNumberX;
+        Set<Integer> interestChunks = new HashSet<>();
+        for (int dy = -INTEREST_RADIUS_IN_CHUNKS; dy <= INTEREST_RADIUS_IN_CHUNKS; dy++) {
+            for (int dx = -INTEREST_RADIUS_IN_CHUNKS; dx <= INTEREST_RADIUS_IN_CHUNKS; dx++) {
+                interestChunks.add(Math.floorMod(centerChunkY + dy, chunksNumberY) * chunksNumberX +
+                        Math.floorMod(centerChunkX + dx, chunksNumberX));
+            }
+        }
+        return interestChunks;
+    }
+
+    private static class Chunk {
+        private final Set<Integer> snakesOwners = new HashSet<>();
+        private final List<SnakesProto.GameState.Coord> foods = new ArrayList<>();
+        private int snakeCellsNumber = 0;
+    }
+}
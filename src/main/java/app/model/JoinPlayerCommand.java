@@ -0,0 +1,10 @@
+package app.model;
+
+import proto.SnakesProto;
+
+public record JoinPlayerCommand(SnakesProto.GamePlayer newPlayer) implements GameModelCommand {
+    @Override
+    public void executeOn(GameModel gameModel) {
+        gameModel.applyNewPlayer(newPlayer);
+    }
+}
@@ -0,0 +1,10 @@
+package app.model;
+
+import proto.SnakesProto;
+
+public record LoadGameStateCommand(SnakesProto.GameState gameState) implements GameModelCommand {
+    @Override
+    public void executeOn(GameModel gameModel) {
+        gameModel.applyGameState(gameState);
+    }
+}
@@ -0,0 +1,66 @@
+package app.model;
+
+import proto.SnakesProto;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+
+public class LockstepTicks {
+    public static SnakesProto.GameMessage.LockstepTickMsg makeTick(int baseStateOrder, GameTickInputs tickInputs,
+                                                                   boolean isRebaseRequired) {
+        var tickBuilder = SnakesProto.GameMessage.LockstepTickMsg.newBuilder()
+                .setBaseStateOrder(baseStateOrder)
+                .setRandomSeed(tickInputs.randomSeed())
+                .setRebaseBaseState(isRebaseRequired);
+        for (var playerCommand : tickInputs.playerCommands()) {
+            var inputBuilder = SnakesProto.GameMessage.LockstepTickMsg.PlayerInput.newBuilder();
+            if (playerCommand instanceof JoinPlayerCommand joinCommand) {
+                inputBuilder.setJoinedPlayer(joinCommand.newPlayer());
+            } else if (playerCommand instanceof ChangePlayerStatusCommand statusCommand) {
+                var statusChangeBuilder = SnakesProto.GameMessage.LockstepTickMsg.PlayerStatusChange.newBuilder()
+                        .setPlayerId(statusCommand.playerId());
+                if (statusCommand.playerRole() != null) {
+                    statusChangeBuilder.setRole(statusCommand.playerRole());
+                }
+                if (statusCommand.snakeState() != null) {
+                    statusChangeBuilder.setSnakeState(statusCommand.snakeState());
+                }
+                inputBuilder.setStatusChange(statusChangeBuilder);
+            }
+            tickBuilder.addPlayerInputs(inputBuilder);
+        }
+        for (var snakeTurn : tickInputs.snakesTurns().entrySet()) {
+            tickBuilder.addSnakeTurns(SnakesProto.GameMessage.LockstepTickMsg.SnakeTurn.newBuilder()
+                    .setPlayerId(snakeTurn.getKey())
+                    .setDirection(snakeTurn.getValue()));
+        }
+        return tickBuilder.build();
+    }
+
+    public static GameTickInputs readTickInputs(SnakesProto.GameMessage.LockstepTickMsg tick) {
+        var playerCommands = new ArrayList<GameModelCommand>();
+        for (var playerInput : tick.getPlayerInputsList()) {
+            if (playerInput.hasJoinedPlayer()) {
+                playerCommands.add(new JoinPlayerCommand(playerInput.getJoinedPlayer()));
+            } else if (playerInput.hasStatusChange()) {
+                var statusChange = playerInput.getStatusChange();
+                playerCommands.add(new ChangePlayerStatusCommand(statusChange.getPlayerId(),
+                        statusChange.hasRole() ? statusChange.getRole() : null,
+                        statusChange.hasSnakeState() ? statusChange.getSnakeState() : null));
+            }
+        }
+        Map<Integer, SnakesProto.Direction> snakesTurns = new TreeMap<>();
+        for (var snakeTurn : tick.getSnakeTurnsList()) {
+            snakesTurns.put(snakeTurn.getPlayerId(), snakeTurn.getDirection());
+        }
+        return new GameTickInputs(tick.getRandomSeed(), playerCommands, snakesTurns, true);
+    }
+
+    public static long hashGameState(SnakesProto.GameState gameState) {
+        CRC32C stateChecksum = new CRC32C();
+        stateChecksum.update(gameState.toByteArray());
+        return stateChecksum.getValue();
+    }
+}
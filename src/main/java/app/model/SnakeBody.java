@@ -0,0 +1,4 @@
+package app.model;
+
+public class SnakeBody extends IntRingBuffer {
+}
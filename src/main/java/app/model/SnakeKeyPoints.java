@@ -0,0 +1,65 @@
+package app.model;
+
+import proto.SnakesProto;
+
+public class SnakeKeyPoints {
+    private static final int SNAKE_HEAD_INDEX = 0;
+
+    private int headX;
+    private int headY;
+    private final IntRingBuffer offsetsByX = new IntRingBuffer();
+    private final IntRingBuffer offsetsByY = new IntRingBuffer();
+
+    public static SnakeKeyPoints fromSnake(SnakesProto.GameState.Snake snake) {
+        SnakeKeyPoints snakeKeyPoints = new SnakeKeyPoints();
+        snakeKeyPoints.headX = snake.getPoints(SNAKE_HEAD_INDEX).getX();
+        snakeKeyPoints.headY = snake.getPoints(SNAKE_HEAD_INDEX).getY();
+        for (int i = SNAKE_HEAD_INDEX + 1; i < snake.getPointsCount(); i++) {
+            snakeKeyPoints.offsetsByX.addLast(snake.getPoints(i).getX());
+            snakeKeyPoints.offsetsByY.addLast(snake.getPoints(i).getY());
+        }
+        return snakeKeyPoints;
+    }
+
+    public void moveHead(int nextHeadX, int nextHeadY, int stepByX, int stepByY) {
+        if (!offsetsByX.isEmpty() &&
+                Integer.signum(offsetsByX.getFirst()) == -stepByX &&
+                Integer.signum(offsetsByY.getFirst()) == -stepByY) {
+            offsetsByX.set(SNAKE_HEAD_INDEX, offsetsByX.getFirst() - stepByX);
+            offsetsByY.set(SNAKE_HEAD_INDEX, offsetsByY.getFirst() - stepByY);
+        } else {
+            offsetsByX.addFirst(-stepByX);
+            offsetsByY.addFirst(-stepByY);
+        }
+        headX = nextHeadX;
+        headY = nextHeadY;
+    }
+
+    public void shrinkTail() {
+        if (offsetsByX.isEmpty()) {
+            return;
+        }
+        int lastOffsetIndex = offsetsByX.size() - 1;
+        int tailOffsetByX = offsetsByX.getLast() - Integer.signum(offsetsByX.getLast());
+        int tailOffsetByY = offsetsByY.getLast() - Integer.signum(offsetsByY.getLast());
+        if (tailOffsetByX == 0 && tailOffsetByY == 0) {
+            offsetsByX.removeLast();
+            offsetsByY.removeLast();
+        } else {
+            offsetsByX.set(lastOffsetIndex, tailOffsetByX);
+            offsetsByY.set(lastOffsetIndex, tailOffsetByY);
+        }
+    }
+
+    public void writePointsTo(SnakesProto.GameState.Snake.Builder snakeBuilder) {
+        snakeBuilder.clearPoints();
+        snakeBuilder.addPoints(buildCoordinate(headX, headY));
+        for (int i = 0; i < offsetsByX.size(); i++) {
+            snakeBuilder.addPoints(buildCoordinate(offsetsByX.get(i), offsetsByY.get(i)));
+        }
+    }
+
+    private SnakesProto.GameState.Coord buildCoordinate(int x, int y) {
+        return SnakesProto.GameState.Coord.newBuilder().setX(x).setY(y).build();
+    }
+}
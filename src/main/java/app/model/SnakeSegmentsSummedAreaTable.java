@@ -0,0 +1,50 @@
+package app.model;
+
+public class SnakeSegmentsSummedAreaTable {
+    private final int fieldWidth;
+    private final int fieldHeight;
+    // sums[y * (fieldWidth + 1) + x] - число занятых змеями клеток в прямоугольнике [0, x) x [0, y)
+    private final int[] sums;
+
+    public SnakeSegmentsSummedAreaTable(FieldOccupancyGrid occupancyGrid) {
+        this.fieldWidth = occupancyGrid.getFieldWidth();
+        this.fieldHeight = occupancyGrid.getFieldHeight();
+        this.sums = new int[(fieldWidth + 1) * (fieldHeight + 1)];
+        for (int y = 0; y < fieldHeight; y++) {
+            int rowSum = 0;
+            for (int x = 0; x < fieldWidth; x++) {
+                if (occupancyGrid.getSnakeSegmentsNumber(x, y) > 0) {
+                    rowSum++;
+                }
+                sums[getSumIndex(x + 1, y + 1)] = sums[getSumIndex(x + 1, y)] + rowSum;
+            }
+        }
+    }
+
+    public int countOccupiedCells(int leftX, int topY, int areaWidth, int areaHeight) {
+        leftX = Math.floorMod(leftX, fieldWidth);
+        topY = Math.floorMod(topY, fieldHeight);
+        int firstPartWidth = Math.min(areaWidth, fieldWidth - leftX);
+        int firstPartHeight = Math.min(areaHeight, fieldHeight - topY);
+        int secondPartWidth = areaWidth - firstPartWidth;
+        int secondPartHeight = areaHeight - firstPartHeight;
+        return countInsideField(leftX, topY, firstPartWidth, firstPartHeight) +
+                countInsideField(0, topY, secondPartWidth, firstPartHeight) +
+                countInsideField(leftX, 0, firstPartWidth, secondPartHeight) +
+                countInsideField(0, 0, secondPartWidth, secondPartHeight);
+    }
+
+    private int countInsideField(int leftX, int topY, int areaWidth, int areaHeight) {
+        if (areaWidth <= 0 || areaHeight <= 0) {
+            return 0;
+        }
+        int rightX = leftX + areaWidth;
+        int bottomY = topY + areaHeight;
+        return sums[getSumIndex(rightX, bottomY)] - sums[getSumIndex(leftX, bottomY)] -
+                sums[getSumIndex(rightX, topY)] + sums[getSumIndex(leftX, topY)];
+    }
+
+    private int getSumIndex(int x, int y) {
+        return y * (fieldWidth + 1) + x;
+    }
+}
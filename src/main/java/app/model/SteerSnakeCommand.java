@@ -0,0 +1,14 @@
+package app.model;
+
+import proto.SnakesProto;
+
+import java.util.List;
+
+public record SteerSnakeCommand(List<SnakesProto.Direction> chosenDirections,
+                                int playerId,
+                                long directionChangesNumber) implements GameModelCommand {
+    @Override
+    public void executeOn(GameModel gameModel) {
+        gameModel.applySnakeDirectionChange(chosenDirections, playerId, directionChangesNumber);
+    }
+}
@@ -0,0 +1,106 @@
+package app.networks;
+
+import proto.SnakesProto;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+public class AcknowledgementsCollector {
+    private static final int MAX_ACK_RANGES_PER_MESSAGE = 32;
+    private static final long MAX_ACK_RANGE_LENGTH = 4096;
+
+    private final LinkedHashMap<Integer, PendingAcknowledgements> pendingAcknowledgementsByPlayer = new LinkedHashMap<>();
+
+    public void add(SnakesProto.GamePlayer senderPlayer, long msgSeq, long receiveTime) {
+        var pendingAcknowledgements = pendingAcknowledgementsByPlayer.computeIfAbsent(senderPlayer.getId(),
+                id -> new PendingAcknowledgements());
+        pendingAcknowledgements.senderPlayer = senderPlayer;
+        pendingAcknowledgements.receiveTimesByMsgSeq.putIfAbsent(msgSeq, receiveTime);
+    }
+
+    public boolean isEmpty() {
+        return pendingAcknowledgementsByPlayer.isEmpty();
+    }
+
+    public List<Integer> getPendingPlayerIds() {
+        return new ArrayList<>(pendingAcknowledgementsByPlayer.keySet());
+    }
+
+    public List<CommunicationMessage> pollAckMessages(int playerId, SnakesProto.GamePlayer myPlayer, long currentTime) {
+        var pendingAcknowledgements = pendingAcknowledgementsByPlayer.remove(playerId);
+        if (pendingAcknowledgements == null) {
+            return List.of();
+        }
+        var ackRanges = new ArrayList<SnakesProto.GameMessage.AckMsg.AckRange>();
+        Long firstMsgSeq = null;
+        long lastMsgSeq = 0;
+        for (long msgSeq : pendingAcknowledgements.receiveTimesByMsgSeq.keySet()) {
+            if (firstMsgSeq != null && msgSeq == lastMsgSeq + 1) {
+                lastMsgSeq = msgSeq;
+                continue;
+            }
+            if (firstMsgSeq != null) {
+                ackRanges.add(makeAckRange(firstMsgSeq, lastMsgSeq));
+            }
+            firstMsgSeq = msgSeq;
+            lastMsgSeq = msgSeq;
+        }
+        ackRanges.add(makeAckRange(firstMsgSeq, lastMsgSeq));
+
+        var ackMessages = new ArrayList<CommunicationMessage>();
+        for (int i = 0; i < ackRanges.size(); i += MAX_ACK_RANGES_PER_MESSAGE) {
+            var messageRanges = ackRanges.subList(i, Math.min(i + MAX_ACK_RANGES_PER_MESSAGE, ackRanges.size()));
+            // msg_seq - последнее из подтверждаемых, по нему отправитель измеряет RTT
+            long ackedMsgSeq = messageRanges.get(messageRanges.size() - 1).getLastMsgSeq();
+            long ackDelay = currentTime - pendingAcknowledgements.receiveTimesByMsgSeq.get(ackedMsgSeq);
+            var ackMessageImage = SnakesProto.GameMessage.AckMsg.newBuilder()
+                    .addAllRanges(messageRanges)
+                    .setAckDelayMs((int) TimeUnit.NANOSECONDS.toMillis(ackDelay))
+                    .build();
+            var gameMessage = SnakesProto.GameMessage.newBuilder()
+                    .setAck(ackMessageImage)
+                    .setMsgSeq(ackedMsgSeq)
+                    .setSenderId(myPlayer.getId())
+                    .setReceiverId(playerId)
+                    .build();
+            ackMessages.add(CommunicationMessage.builder()
+                    .message(gameMessage)
+                    .senderPlayer(myPlayer)
+                    .receiverPlayer(pendingAcknowledgements.senderPlayer)
+                    .build());
+        }
+        return ackMessages;
+    }
+
+    public static List<Long> getAckedMsgSeqs(SnakesProto.GameMessage ackMessage) {
+        var ackedMsgSeqs = new ArrayList<Long>();
+        ackedMsgSeqs.add(ackMessage.getMsgSeq());
+        for (var ackRange : ackMessage.getAck().getRangesList()) {
+            long rangeLength = ackRange.getLastMsgSeq() - ackRange.getFirstMsgSeq();
+            if (rangeLength < 0 || rangeLength >= MAX_ACK_RANGE_LENGTH) {
+                continue;
+            }
+            for (long msgSeq = ackRange.getFirstMsgSeq(); msgSeq <= ackRange.getLastMsgSeq(); msgSeq++) {
+                if (msgSeq != ackMessage.getMsgSeq()) {
+                    ackedMsgSeqs.add(msgSeq);
+                }
+            }
+        }
+        return ackedMsgSeqs;
+    }
+
+    private static SnakesProto.GameMessage.AckMsg.AckRange makeAckRange(long firstMsgSeq, long lastMsgSeq) {
+        return SnakesProto.GameMessage.AckMsg.AckRange.newBuilder()
+                .setFirstMsgSeq(firstMsgSeq)
+                .setLastMsgSeq(lastMsgSeq)
+                .build();
+    }
+
+    private static class PendingAcknowledgements {
+        private SnakesProto.GamePlayer senderPlayer;
+        private final TreeMap<Long, Long> receiveTimesByMsgSeq = new TreeMap<>();
+    }
+}
@@ -1,5 +1,6 @@
 package app.networks;
 
+import com.google.protobuf.ByteString;
 import lombok.Builder;
 import proto.SnakesProto;
 
@@ -8,6 +9,9 @@ public class CommunicationMessage {
     private SnakesProto.GameMessage message;
     private SnakesProto.GamePlayer senderPlayer;
     private SnakesProto.GamePlayer receiverPlayer;
+    // Общая для всех получателей сериализованная часть сообщения, дописывается после message
+    private ByteString sharedPayload;
+    private SnakesProto.GameMessage.TypeCase sharedPayloadType;
 
     public SnakesProto.GamePlayer getSenderPlayer() {
         return senderPlayer;
@@ -21,6 +25,22 @@ public class CommunicationMessage {
         return message;
     }
 
+    public ByteString getSharedPayload() {
+        return sharedPayload;
+    }
+
+    public void setSharedPayload(ByteString sharedPayload, SnakesProto.GameMessage.TypeCase sharedPayloadType) {
+        this.sharedPayload = sharedPayload;
+        this.sharedPayloadType = sharedPayloadType;
+    }
+
+    public SnakesProto.GameMessage.TypeCase getMessageType() {
+        if (sharedPayload != null) {
+            return sharedPayloadType;
+        }
+        return message.getTypeCase();
+    }
+
     public void setMessage(SnakesProto.GameMessage message) {
         this.message = message;
     }
@@ -37,13 +57,4 @@ public class CommunicationMessage {
                 ", receiverPlayer=" + receiverPlayer +
                 '}';
     }
-
-    @Override
-    public boolean equals(Object obj) {
-        if (obj instanceof CommunicationMessage message) {
-            return senderPlayer.getPort() == message.senderPlayer.getPort();
-        } else {
-            return false;
-        }
-    }
 }
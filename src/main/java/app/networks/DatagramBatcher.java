@@ -0,0 +1,165 @@
+package app.networks;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import proto.SnakesProto;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+public class DatagramBatcher {
+    public static final int DEFAULT_MTU = 1500;
+    public static final int MIN_MTU = 576;
+    public static final int MAX_MTU = 65535;
+    private static final int MAX_DATAGRAM_SIZE = 65507;
+    private static final int UDP_IP_HEADERS_SIZE = 28;
+    private static final int MAX_BATCH_HEADER_SIZE = 17;
+    private static final int MAX_FRAGMENT_HEADER_SIZE = 64;
+
+    private final DatagramChannel channel;
+    private final int maxDatagramSize;
+    private final int fragmentDataSize;
+    private final ByteBuffer sendingBuffer = ByteBuffer.allocateDirect(MAX_DATAGRAM_SIZE);
+    private final LinkedHashMap<Integer, ArrayList<CommunicationMessage>> pendingMessagesByPlayer = new LinkedHashMap<>();
+    private long nextFragmentedMessageId = 0;
+
+    public DatagramBatcher(DatagramChannel channel, int mtu) {
+        if (mtu < MIN_MTU || mtu > MAX_MTU) {
+            throw new IllegalArgumentException("MTU must be between " + MIN_MTU + " and " + MAX_MTU + ", got " + mtu);
+        }
+        this.channel = channel;
+        this.maxDatagramSize = Math.min(mtu - UDP_IP_HEADERS_SIZE, MAX_DATAGRAM_SIZE);
+        this.fragmentDataSize = maxDatagramSize - MAX_FRAGMENT_HEADER_SIZE;
+    }
+
+    public void add(CommunicationMessage message) {
+        pendingMessagesByPlayer.computeIfAbsent(message.getReceiverPlayer().getId(), id -> new ArrayList<>())
+                .add(message);
+    }
+
+    public boolean hasPendingMessagesFor(int playerId) {
+        var pendingMessages = pendingMessagesByPlayer.get(playerId);
+        return pendingMessages != null && !pendingMessages.isEmpty();
+    }
+
+    public void flush() {
+        for (var pendingMessages : pendingMessagesByPlayer.values()) {
+            if (pendingMessages.isEmpty()) {
+                continue;
+            }
+            try {
+                flushPlayerMessages(pendingMessages);
+            } catch (IOException exception) {
+                exception.printStackTrace();
+            }
+            pendingMessages.clear();
+        }
+    }
+
+    private void flushPlayerMessages(ArrayList<CommunicationMessage> pendingMessages) throws IOException {
+        var receiverPlayer = pendingMessages.get(0).getReceiverPlayer();
+        var receiverAddress = new InetSocketAddress(
+                InetAddress.getByName(receiverPlayer.getIpAddress()), receiverPlayer.getPort());
+        int batchStartIndex = 0;
+        int batchContentSize = 0;
+        for (int i = 0; i < pendingMessages.size(); i++) {
+            var message = pendingMessages.get(i);
+            if (getMessageSize(message) > maxDatagramSize) {
+                if (i > batchStartIndex) {
+                    sendDatagram(pendingMessages, batchStartIndex, i, batchContentSize, receiverAddress);
+                }
+                sendFragments(message, receiverAddress);
+                batchStartIndex = i + 1;
+                batchContentSize = 0;
+                continue;
+            }
+            int entrySize = getBatchEntrySize(message);
+            if (i > batchStartIndex && MAX_BATCH_HEADER_SIZE + batchContentSize + entrySize > maxDatagramSize) {
+                sendDatagram(pendingMessages, batchStartIndex, i, batchContentSize, receiverAddress);
+                batchStartIndex = i;
+                batchContentSize = 0;
+            }
+            batchContentSize += entrySize;
+        }
+        if (batchStartIndex < pendingMessages.size()) {
+            sendDatagram(pendingMessages, batchStartIndex, pendingMessages.size(), batchContentSize, receiverAddress);
+        }
+    }
+
+    private void sendFragments(CommunicationMessage message, InetSocketAddress receiverAddress) throws IOException {
+        var messageBytes = message.getMessage().toByteString();
+        if (message.getSharedPayload() != null) {
+            messageBytes = messageBytes.concat(message.getSharedPayload());
+        }
+        int fragmentsNumber = (messageBytes.size() + fragmentDataSize - 1) / fragmentDataSize;
+        long messageId = nextFragmentedMessageId++;
+        for (int i = 0; i < fragmentsNumber; i++) {
+            var fragment = SnakesProto.GameMessage.FragmentMsg.newBuilder()
+                    .setMessageId(messageId)
+                    .setFragmentIndex(i)
+                    .setFragmentsNumber(fragmentsNumber)
+                    .setData(messageBytes.substring(i * fragmentDataSize,
+                            Math.min((i + 1) * fragmentDataSize, messageBytes.size())))
+                    .build();
+            var fragmentMessage = SnakesProto.GameMessage.newBuilder()
+                    .setMsgSeq(NetworkNode.incrementStateNumber())
+                    .setFragment(fragment)
+                    .build();
+            sendingBuffer.clear();
+            CodedOutputStream bufferOutput = CodedOutputStream.newInstance(sendingBuffer);
+            fragmentMessage.writeTo(bufferOutput);
+            bufferOutput.flush();
+            sendingBuffer.flip();
+            channel.send(sendingBuffer, receiverAddress);
+        }
+    }
+
+    private void sendDatagram(ArrayList<CommunicationMessage> messages, int fromIndex, int toIndex,
+                              int batchContentSize, InetSocketAddress receiverAddress) throws IOException {
+        sendingBuffer.clear();
+        CodedOutputStream bufferOutput = CodedOutputStream.newInstance(sendingBuffer);
+        if (toIndex - fromIndex == 1) {
+            writeMessage(messages.get(fromIndex), bufferOutput);
+        } else {
+            bufferOutput.writeInt64(SnakesProto.GameMessage.MSG_SEQ_FIELD_NUMBER, NetworkNode.incrementStateNumber());
+            bufferOutput.writeTag(SnakesProto.GameMessage.BATCH_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            bufferOutput.writeUInt32NoTag(batchContentSize);
+            for (int i = fromIndex; i < toIndex; i++) {
+                var message = messages.get(i);
+                bufferOutput.writeTag(SnakesProto.GameMessage.BatchMsg.MESSAGES_FIELD_NUMBER,
+                        WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                bufferOutput.writeUInt32NoTag(getMessageSize(message));
+                writeMessage(message, bufferOutput);
+            }
+        }
+        bufferOutput.flush();
+        sendingBuffer.flip();
+        channel.send(sendingBuffer, receiverAddress);
+    }
+
+    private void writeMessage(CommunicationMessage message, CodedOutputStream bufferOutput) throws IOException {
+        message.getMessage().writeTo(bufferOutput);
+        if (message.getSharedPayload() != null) {
+            bufferOutput.writeRawBytes(message.getSharedPayload().asReadOnlyByteBuffer());
+        }
+    }
+
+    private int getMessageSize(CommunicationMessage message) {
+        int messageSize = message.getMessage().getSerializedSize();
+        if (message.getSharedPayload() != null) {
+            messageSize += message.getSharedPayload().size();
+        }
+        return messageSize;
+    }
+
+    private int getBatchEntrySize(CommunicationMessage message) {
+        int messageSize = getMessageSize(message);
+        return CodedOutputStream.computeTagSize(SnakesProto.GameMessage.BatchMsg.MESSAGES_FIELD_NUMBER) +
+                CodedOutputStream.computeUInt32SizeNoTag(messageSize) + messageSize;
+    }
+}
@@ -0,0 +1,100 @@
+package app.networks;
+
+import app.utilities.DebugPrinter;
+import com.google.protobuf.CodedInputStream;
+import lombok.Builder;
+import proto.SnakesProto;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.Executor;
+
+@Builder
+public class DatagramEventLoop extends Thread {
+    private static final int MAX_DATAGRAM_SIZE = 65507;
+    private static final int MAX_POOLED_BUFFERS_NUMBER = 64;
+
+    private final DatagramChannel unicastChannel;
+    private final DatagramChannel multicastChannel;
+    private final NetworkNode networkNode;
+    private final Executor messagesExecutor;
+    private final ReceiveBuffersPool buffersPool = new ReceiveBuffersPool(MAX_DATAGRAM_SIZE, MAX_POOLED_BUFFERS_NUMBER);
+    private final FragmentsReassembler fragmentsReassembler = new FragmentsReassembler();
+
+    @Override
+    public void run() {
+        try (Selector selector = Selector.open()) {
+            unicastChannel.register(selector, SelectionKey.OP_READ);
+            multicastChannel.register(selector, SelectionKey.OP_READ);
+            while (!isInterrupted()) {
+                selector.select();
+                for (var selectedKey : selector.selectedKeys()) {
+                    receiveAllDatagrams((DatagramChannel) selectedKey.channel());
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void receiveAllDatagrams(DatagramChannel channel) throws IOException {
+        boolean isMulticast = channel == multicastChannel;
+        while (true) {
+            ByteBuffer datagramBuffer = buffersPool.acquire();
+            var senderAddress = (InetSocketAddress) channel.receive(datagramBuffer);
+            if (senderAddress == null) {
+                buffersPool.release(datagramBuffer);
+                return;
+            }
+            datagramBuffer.flip();
+            messagesExecutor.execute(() -> dispatchDatagram(datagramBuffer, senderAddress, isMulticast));
+        }
+    }
+
+    private void dispatchDatagram(ByteBuffer datagramBuffer, InetSocketAddress senderAddress, boolean isMulticast) {
+        SnakesProto.GameMessage gameMessage;
+        try {
+            gameMessage = SnakesProto.GameMessage.parseFrom(CodedInputStream.newInstance(datagramBuffer));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        } finally {
+            buffersPool.release(datagramBuffer);
+        }
+        if (gameMessage.hasFragment()) {
+            var reassembledMessage = fragmentsReassembler.addFragment(senderAddress, gameMessage.getFragment(),
+                    System.nanoTime());
+            if (reassembledMessage == null) {
+                return;
+            }
+            try {
+                gameMessage = SnakesProto.GameMessage.parseFrom(reassembledMessage);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+        }
+        if (isMulticast) {
+            networkNode.handleReceivedMulticastMessage(gameMessage, senderAddress.getAddress(), senderAddress.getPort());
+        } else if (gameMessage.hasBatch()) {
+            for (var batchedMessage : gameMessage.getBatch().getMessagesList()) {
+                dispatchUnicastMessage(batchedMessage, senderAddress);
+            }
+        } else {
+            dispatchUnicastMessage(gameMessage, senderAddress);
+        }
+    }
+
+    private void dispatchUnicastMessage(SnakesProto.GameMessage gameMessage, InetSocketAddress senderAddress) {
+        if (DebugPrinter.isMessagesTracingEnabled()) {
+            DebugPrinter.printWithSpecifiedDateAndName(this.getClass().getSimpleName(),
+                    "Got new game message with type " + gameMessage.getTypeCase());
+        }
+        networkNode.handleReceivedUnicastMessage(gameMessage, senderAddress.getAddress(), senderAddress.getPort());
+    }
+}
@@ -0,0 +1,13 @@
+package app.networks;
+
+public interface FailureDetector {
+    void heartbeat(int playerId, long arrivalTime);
+
+    boolean isSuspected(int playerId, long currentTime);
+
+    double getSuspicionLevel(int playerId, long currentTime);
+
+    long getLastHeartbeatTime(int playerId);
+
+    void remove(int playerId);
+}
@@ -0,0 +1,104 @@
+package app.networks;
+
+import com.google.protobuf.ByteString;
+import proto.SnakesProto;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+public class FragmentsReassembler {
+    private static final int DEFAULT_MAX_PENDING_BYTES = 8 * 1024 * 1024;
+    private static final long DEFAULT_REASSEMBLY_TIMEOUT = TimeUnit.SECONDS.toNanos(1);
+    private static final int MAX_FRAGMENTS_NUMBER = 4096;
+    private static final int PENDING_MESSAGE_OVERHEAD_BYTES = 128;
+    private static final int FRAGMENT_SLOT_BYTES = 8;
+
+    private final int maxPendingBytes;
+    private final long reassemblyTimeout;
+    private final LinkedHashMap<FragmentedMessageKey, PendingMessage> pendingMessages = new LinkedHashMap<>();
+    private int pendingBytes = 0;
+
+    public FragmentsReassembler() {
+        this(DEFAULT_MAX_PENDING_BYTES, DEFAULT_REASSEMBLY_TIMEOUT);
+    }
+
+    public FragmentsReassembler(int maxPendingBytes, long reassemblyTimeout) {
+        this.maxPendingBytes = maxPendingBytes;
+        this.reassemblyTimeout = reassemblyTimeout;
+    }
+
+    public ByteString addFragment(InetSocketAddress senderAddress, SnakesProto.GameMessage.FragmentMsg fragment,
+                                  long arrivalTime) {
+        removeExpiredMessages(arrivalTime);
+        int fragmentsNumber = fragment.getFragmentsNumber();
+        int fragmentIndex = fragment.getFragmentIndex();
+        if (fragmentsNumber <= 0 || fragmentsNumber > MAX_FRAGMENTS_NUMBER ||
+                fragmentIndex < 0 || fragmentIndex >= fragmentsNumber ||
+                fragment.getData().size() > maxPendingBytes) {
+            return null;
+        }
+        var messageKey = new FragmentedMessageKey(senderAddress, fragment.getMessageId());
+        var pendingMessage = pendingMessages.get(messageKey);
+        if (pendingMessage != null && pendingMessage.fragments.length != fragmentsNumber) {
+            removePendingMessage(messageKey);
+            pendingMessage = null;
+        }
+        if (pendingMessage == null) {
+            pendingMessage = new PendingMessage(fragmentsNumber, arrivalTime);
+            pendingMessages.put(messageKey, pendingMessage);
+            pendingBytes += pendingMessage.accountedBytes;
+        }
+        if (pendingMessage.fragments[fragmentIndex] != null) {
+            return null;
+        }
+        pendingMessage.fragments[fragmentIndex] = fragment.getData();
+        pendingMessage.receivedFragmentsNumber++;
+        pendingMessage.accountedBytes += fragment.getData().size();
+        pendingBytes += fragment.getData().size();
+        if (pendingMessage.receivedFragmentsNumber == fragmentsNumber) {
+            removePendingMessage(messageKey);
+            return ByteString.copyFrom(Arrays.asList(pendingMessage.fragments));
+        }
+        while (pendingBytes > maxPendingBytes) {
+            removePendingMessage(pendingMessages.keySet().iterator().next());
+        }
+        return null;
+    }
+
+    private void removeExpiredMessages(long currentTime) {
+        var pendingIterator = pendingMessages.values().iterator();
+        while (pendingIterator.hasNext()) {
+            var pendingMessage = pendingIterator.next();
+            if (currentTime - pendingMessage.firstArrivalTime <= reassemblyTimeout) {
+                return;
+            }
+            pendingBytes -= pendingMessage.accountedBytes;
+            pendingIterator.remove();
+        }
+    }
+
+    private void removePendingMessage(FragmentedMessageKey messageKey) {
+        var pendingMessage = pendingMessages.remove(messageKey);
+        if (pendingMessage != null) {
+            pendingBytes -= pendingMessage.accountedBytes;
+        }
+    }
+
+    private record FragmentedMessageKey(InetSocketAddress senderAddress, long messageId) {
+    }
+
+    private static class PendingMessage {
+        private final ByteString[] fragments;
+        private final long firstArrivalTime;
+        private int receivedFragmentsNumber = 0;
+        private int accountedBytes;
+
+        PendingMessage(int fragmentsNumber, long firstArrivalTime) {
+            this.fragments = new ByteString[fragmentsNumber];
+            this.firstArrivalTime = firstArrivalTime;
+            this.accountedBytes = PENDING_MESSAGE_OVERHEAD_BYTES + fragmentsNumber * FRAGMENT_SLOT_BYTES;
+        }
+    }
+}
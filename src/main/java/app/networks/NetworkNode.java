@@ -2,16 +2,35 @@ package app.networks;
 
 import java.io.IOException;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
 import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import app.model.GameModel;
+import app.model.GameStateDeltas;
+import app.model.InterestChunks;
+import app.model.LockstepTicks;
 import app.utilities.DebugPrinter;
 import app.utilities.GamePlayersMaker;
 import app.view.ViewController;
 import app.utilities.notifications.Subscriber;
+import com.google.protobuf.ByteString;
 import lombok.Builder;
 import proto.SnakesProto;
 
@@ -19,6 +38,14 @@ public class NetworkNode extends Subscriber {
     private static final String MULTICAST_IP = "239.192.0.4";
     private static final int MULTICAST_PORT = 9192;
     private static final int ANNOUNCEMENT_MESSAGE_PERIOD_IN_MILLIS = 99;
+    private static final int MAX_OUTSTANDING_MESSAGES_PER_PLAYER = 64;
+    private static final int MAX_DEFERRED_MESSAGES_PER_PLAYER = 64;
+    private static final int UNICAST_RECEIVE_BUFFER_SIZE = 1024 * 1024;
+    private static final int LOCKSTEP_MAX_LAG_TICKS = 4;
+    private static final int LOCKSTEP_HASH_PERIOD_IN_TICKS = 10;
+    private static final int MAX_BUFFERED_LOCKSTEP_TICKS = 16;
+    private static final int MAX_REMEMBERED_INTEREST_STATES = 32;
+    private static final int MAX_QUEUED_STEER_DIRECTIONS = 3;
 
     private final String nodeName;
     private SnakesProto.NodeRole nodeRole;
@@ -30,21 +57,29 @@ public class NetworkNode extends Subscriber {
     private final InetAddress myInetAddress;
     private final int myPort;
 
-    private final MulticastSocket multicastSocket;
-    private final DatagramSocket datagramSocket;
-    private DatagramPacket sendingDatagramPacket;
+    private final InetAddress multicastGroupAddress;
+    private final DatagramChannel multicastChannel;
+    private final DatagramChannel unicastChannel;
+    private final DatagramBatcher datagramBatcher;
+    private boolean isSendingFlushScheduled = false;
+    private final ArrayList<SnakesProto.Direction> queuedSteerDirections = new ArrayList<>();
+    private long lastSteerSendingTime = 0;
+    private boolean isSteerFlushScheduled = false;
+    private ByteString sharedStatePayload = null;
 
     private final GameModel gameModel;
-    private final ViewController viewController;
+    private ViewController viewController = null;
 
     private SnakesProto.GamePlayer masterPlayer;
     private SnakesProto.GamePlayer deputyPlayer = null;
 
-    private static int gameStateNumber = 0;
+    private static final AtomicLong gameStateNumber = new AtomicLong(0);
 
-    private long lastAnnouncementTimestamp;
-    private long lastStateTimestamp;
-    private long lastSentMessageTimestamp;
+    private final ScheduledExecutorService communicationScheduler = Executors.newSingleThreadScheduledExecutor();
+    private ScheduledFuture<?> gameStepTask;
+    private ScheduledFuture<?> retransmissionsCheckTask;
+    private long retransmissionsCheckDeadline;
+    private boolean isMasterHandoffRequested = false;
 
     private static final SnakesProto.NodeRole VIEWER_ROLE = SnakesProto.NodeRole.VIEWER;
     private static final SnakesProto.NodeRole MASTER_ROLE = SnakesProto.NodeRole.MASTER;
@@ -52,12 +87,28 @@ public class NetworkNode extends Subscriber {
     private static final SnakesProto.NodeRole NORMAL_ROLE = SnakesProto.NodeRole.NORMAL;
 
     private final ConcurrentHashMap<CommunicationMessage, Instant> announcementsTimestamps = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<CommunicationMessage, Instant> requiredSendingMessages = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<CommunicationMessage, Instant> requiredConfirmationMessages = new ConcurrentHashMap<>();
+    // Очередь отправки и учёт неподтверждённых сообщений меняются только в потоке communicationScheduler
+    private final ArrayDeque<CommunicationMessage> requiredSendingMessages = new ArrayDeque<>();
+    private final HashMap<Integer, ArrayDeque<CommunicationMessage>> deferredMessagesByReceiver = new HashMap<>();
+    private final ReliableDeliveryTracker deliveryTracker = new ReliableDeliveryTracker(MAX_OUTSTANDING_MESSAGES_PER_PLAYER);
+    private final AcknowledgementsCollector acknowledgementsCollector = new AcknowledgementsCollector();
+    private boolean isAcknowledgementsSendingRequested = false;
+    private final HashMap<Integer, Long> lastReliableSendingTimesByPlayer = new HashMap<>();
+    private final ConcurrentHashMap<Integer, RoundTripTimeEstimator> roundTripTimeEstimatorsByPlayer = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Integer> ackedStateOrdersByPlayer = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Integer> sentStateOrdersByMsgSeq = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, ConcurrentSkipListMap<Integer, SnakesProto.GameState>> sentInterestStatesByPlayer =
+            new ConcurrentHashMap<>();
+    private final FailureDetector failureDetector;
+    private final boolean isLockstepUsed;
+    private int lockstepRebasedStateOrder = -1;
+    private final TreeMap<Integer, SnakesProto.GameMessage> bufferedLockstepTicks = new TreeMap<>();
+    private boolean isLockstepDesynced = false;
 
     @Builder
     public NetworkNode(GameModel gameModel, SnakesProto.NodeRole nodeRole, String nodeName,
-                       InetAddress myInetAddress, int myPort, UUID nodeId) throws Exception {
+                       InetAddress myInetAddress, int myPort, UUID nodeId,
+                       FailureDetector failureDetector, int mtu, boolean lockstep) throws Exception {
         super(gameModel);
         this.gameModel = gameModel;
         this.nodeRole = nodeRole;
@@ -65,60 +116,150 @@ public class NetworkNode extends Subscriber {
         this.myInetAddress = myInetAddress;
         this.myPort = myPort;
         this.nodeId = nodeId;
+        this.failureDetector = (failureDetector != null) ? failureDetector :
+                new PhiAccrualFailureDetector(PhiAccrualFailureDetector.DEFAULT_THRESHOLD);
+        this.isLockstepUsed = lockstep;
 
-        viewController = ViewController.builder()
-                .networkNode(this)
-                .gameModel(gameModel)
-                .build();
-        multicastSocket = new MulticastSocket(MULTICAST_PORT);
-        datagramSocket = new DatagramSocket(myPort, myInetAddress);
-        connectMulticastSocketToGroup();
+        multicastGroupAddress = InetAddress.getByName(MULTICAST_IP);
+        unicastChannel = DatagramChannel.open(StandardProtocolFamily.INET)
+                .setOption(StandardSocketOptions.SO_RCVBUF, UNICAST_RECEIVE_BUFFER_SIZE)
+                .bind(new InetSocketAddress(myInetAddress, myPort));
+        unicastChannel.configureBlocking(false);
+        datagramBatcher = new DatagramBatcher(unicastChannel, (mtu > 0) ? mtu : DatagramBatcher.DEFAULT_MTU);
+        multicastChannel = DatagramChannel.open(StandardProtocolFamily.INET)
+                .setOption(StandardSocketOptions.SO_REUSEADDR, true)
+                .bind(new InetSocketAddress(MULTICAST_PORT));
+        multicastChannel.configureBlocking(false);
+        connectMulticastChannelToGroup();
     }
 
-    private void connectMulticastSocketToGroup() throws IOException {
-        multicastSocket.joinGroup(InetAddress.getByName(MULTICAST_IP));
+    private void connectMulticastChannelToGroup() throws IOException {
+        NetworkInterface multicastInterface = getMulticastNetworkInterface();
+        multicastChannel.setOption(StandardSocketOptions.IP_MULTICAST_IF, multicastInterface);
+        multicastChannel.join(multicastGroupAddress, multicastInterface);
+    }
+
+    private NetworkInterface getMulticastNetworkInterface() throws IOException {
+        var boundInterface = NetworkInterface.getByInetAddress(myInetAddress);
+        if (boundInterface != null) {
+            return boundInterface;
+        }
+        NetworkInterface loopbackInterface = null;
+        for (var networkInterface : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+            if (!networkInterface.isUp() || !networkInterface.supportsMulticast()) {
+                continue;
+            }
+            if (!networkInterface.isLoopback()) {
+                return networkInterface;
+            }
+            loopbackInterface = networkInterface;
+        }
+        if (loopbackInterface == null) {
+            throw new IOException("No network interface supports multicast");
+        }
+        return loopbackInterface;
     }
 
     public void startCommunicating() {
-        UnicastReceiver unicastReceiver = UnicastReceiver.builder()
-                .datagramSocket(datagramSocket)
-                .networkNode(this)
-                .build();
-        MulticastReceiver multicastReceiver = MulticastReceiver.builder()
-                .multicastSocket(multicastSocket)
+        DatagramEventLoop datagramEventLoop = DatagramEventLoop.builder()
+                .unicastChannel(unicastChannel)
+                .multicastChannel(multicastChannel)
                 .networkNode(this)
+                .messagesExecutor(communicationScheduler)
                 .build();
 
-        lastAnnouncementTimestamp = getEpochMillisBySystemClockInstant();
-        lastStateTimestamp = getEpochMillisBySystemClockInstant();
-        lastSentMessageTimestamp = getEpochMillisBySystemClockInstant();
-
-        unicastReceiver.start();
-        multicastReceiver.start();
+        datagramEventLoop.start();
 
-        while (true) {
-            communicate();
-        }
+        long startTime = System.nanoTime();
+        scheduleGameStep(startTime);
+        schedulePingsRound(startTime);
+        scheduleAnnouncement(startTime);
+        scheduleMasterFailureDetection(startTime);
     }
 
     private long getEpochMillisBySystemClockInstant() {
         return Instant.now().toEpochMilli();
     }
 
-    private void communicate() {
-        processGameStep();
-        sendAllRemainingMessages();
-        sendAnnouncementIfNecessary();
+    private void scheduleGameStep(long deadline) {
+        gameStepTask = communicationScheduler.schedule(() -> {
+            runScheduledTask(this::processGameStep);
+            scheduleGameStep(getNextDeadline(deadline, gameModel.getGameState().getConfig().getStateDelayMs()));
+        }, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    private void rescheduleGameStep(long deadline) {
+        gameStepTask.cancel(false);
+        scheduleGameStep(deadline);
+    }
+
+    private void schedulePingsRound(long deadline) {
+        communicationScheduler.schedule(() -> {
+            runScheduledTask(this::processPlayersActivitiesByPings);
+            schedulePingsRound(getNextDeadline(deadline, gameModel.getGameState().getConfig().getPingDelayMs()));
+        }, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    private void scheduleAnnouncement(long deadline) {
+        communicationScheduler.schedule(() -> {
+            runScheduledTask(this::processAnnouncements);
+            scheduleAnnouncement(getNextDeadline(deadline, ANNOUNCEMENT_MESSAGE_PERIOD_IN_MILLIS));
+        }, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    private void scheduleMasterFailureDetection(long deadline) {
+        communicationScheduler.schedule(() -> {
+            runScheduledTask(this::detectMasterFailure);
+            scheduleMasterFailureDetection(getNextDeadline(deadline, gameModel.getGameState().getConfig().getPingDelayMs()));
+        }, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    private void scheduleRetransmissionsCheck(long deadline) {
+        if (retransmissionsCheckTask != null) {
+            if (retransmissionsCheckDeadline <= deadline) {
+                return;
+            }
+            retransmissionsCheckTask.cancel(false);
+        }
+        retransmissionsCheckDeadline = deadline;
+        retransmissionsCheckTask = communicationScheduler.schedule(
+                () -> runScheduledTask(this::retransmitExpiredMessages),
+                deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    private long getNextDeadline(long lastDeadline, long periodInMillis) {
+        // Пропущенные из-за долгой обработки срабатывания не догоняем, а переносим на текущий момент
+        return Math.max(lastDeadline + TimeUnit.MILLISECONDS.toNanos(periodInMillis), System.nanoTime());
+    }
+
+    private void runScheduledTask(Runnable task) {
+        try {
+            task.run();
+        } catch (Exception exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    private void processAnnouncements() {
+        if (nodeRole.equals(MASTER_ROLE)) {
+            sendAnnouncementsToMulticastGroup();
+        }
         updateAnnouncementsTimestampsByCurrentTime();
         updateMyRoleFromPlayersList();
     }
 
-    private void sendAnnouncementIfNecessary() {
-        if (moreTimeHasPassedThanPeriod(lastAnnouncementTimestamp, ANNOUNCEMENT_MESSAGE_PERIOD_IN_MILLIS)) {
-            if (nodeRole.equals(MASTER_ROLE)) {
-                sendAnnouncementsToMulticastGroup();
-                lastAnnouncementTimestamp = getEpochMillisBySystemClockInstant();
-            }
+    private void addRequiredSendingMessage(CommunicationMessage communicationMessage) {
+        communicationScheduler.execute(() -> runScheduledTask(() -> {
+            requiredSendingMessages.add(communicationMessage);
+            scheduleSendingFlush();
+        }));
+    }
+
+    private void scheduleSendingFlush() {
+        // Сообщения, появившиеся при разборе уже полученных дейтаграмм, уходят одной пачкой
+        if (!isSendingFlushScheduled) {
+            isSendingFlushScheduled = true;
+            communicationScheduler.execute(() -> runScheduledTask(this::sendRequiredMessages));
         }
     }
 
@@ -148,120 +289,224 @@ public class NetworkNode extends Subscriber {
     }
 
     private void processGameStep() {
-        boolean hasTimePassed = makeNextStepIfTimePassed();
-        for (var requiredSendingMessage : requiredSendingMessages.entrySet()) {
+        makeNextStepIfMaster();
+        sendRequiredMessages();
+        updateMyRoleFromPlayersList();
+    }
+
+    private void sendRequiredMessages() {
+        isSendingFlushScheduled = false;
+        this.sendDeferredMessages();
+        int requiredSendingMessagesNumber = requiredSendingMessages.size();
+        for (int i = 0; i < requiredSendingMessagesNumber; i++) {
+            CommunicationMessage correspondingMessage = requiredSendingMessages.poll();
             try {
-                CommunicationMessage correspondingMessage = requiredSendingMessage.getKey();
                 if (correspondingMessage.getReceiverPlayer() == null) {
-                    if (masterPlayer != null)
-                        correspondingMessage.setReceiverPlayer(masterPlayer);
-                    else {
-                        requiredSendingMessages.remove(correspondingMessage);
+                    if (masterPlayer == null) {
                         continue;
                     }
+                    correspondingMessage.setReceiverPlayer(masterPlayer);
                 }
-                if (correspondingMessage.getMessage() == null) {
-                    correspondingMessage.setMessage(SnakesProto.GameMessage.newBuilder()
-                            .setMsgSeq(incrementStateNumber())
-                            .setSenderId(nodeId.hashCode())
-                            .setState(SnakesProto.GameMessage.StateMsg.newBuilder()
-                                    .setState(gameModel.getGameState()).build())
-                            .build());
-                }
-                this.sendMessageToAnotherPlayer(correspondingMessage);
-                requiredSendingMessages.remove(correspondingMessage);
-                if (!correspondingMessage.getMessage().getTypeCase().equals(SnakesProto.GameMessage.TypeCase.ACK)) {
-                    requiredConfirmationMessages.put(correspondingMessage, Instant.now());
+                int receiverId = correspondingMessage.getReceiverPlayer().getId();
+                boolean isConfirmationRequired =
+                        !correspondingMessage.getMessageType().equals(SnakesProto.GameMessage.TypeCase.ACK);
+                if (!isConfirmationRequired) {
+                    this.sendMessageToAnotherPlayer(correspondingMessage);
+                } else if (deferredMessagesByReceiver.containsKey(receiverId) || !deliveryTracker.canSendTo(receiverId)) {
+                    this.deferMessage(receiverId, correspondingMessage);
+                } else {
+                    this.sendTrackedMessage(receiverId, correspondingMessage);
                 }
             } catch (Exception exception) {
                 exception.printStackTrace();
             }
         }
-        if (hasTimePassed) {
-            System.gc();
+        flushSendingMessages();
+    }
+
+    private void sendTrackedMessage(int receiverId, CommunicationMessage trackedMessage) {
+        this.sendMessageToAnotherPlayer(trackedMessage);
+        long sendingTime = System.nanoTime();
+        long retransmissionTimeout = getRetransmissionTimeoutFor(receiverId, 0);
+        deliveryTracker.track(trackedMessage, receiverId, sendingTime, retransmissionTimeout);
+        scheduleRetransmissionsCheck(sendingTime + retransmissionTimeout);
+    }
+
+    // Перегруженному получателю из состояний отправится только последнее, старейшие сообщения сверх лимита теряются
+    private void deferMessage(int receiverId, CommunicationMessage deferredMessage) {
+        var deferredMessages = deferredMessagesByReceiver.computeIfAbsent(receiverId, id -> new ArrayDeque<>());
+        if (deferredMessage.getSharedPayload() != null) {
+            deferredMessages.removeIf(message -> message.getSharedPayload() != null);
+        }
+        deferredMessages.add(deferredMessage);
+        if (deferredMessages.size() > MAX_DEFERRED_MESSAGES_PER_PLAYER) {
+            deferredMessages.poll();
         }
     }
 
-    private void sendAllRemainingMessages() {
-        if (!moreTimeHasPassedThanPeriod(lastSentMessageTimestamp,
-                gameModel.getGameState().getConfig().getPingDelayMs())) {
+    private void sendDeferredMessages() {
+        var deferredMessagesIterator = deferredMessagesByReceiver.entrySet().iterator();
+        while (deferredMessagesIterator.hasNext()) {
+            var receiverDeferredMessages = deferredMessagesIterator.next();
+            int receiverId = receiverDeferredMessages.getKey();
+            var deferredMessages = receiverDeferredMessages.getValue();
+            while (!deferredMessages.isEmpty() && deliveryTracker.canSendTo(receiverId)) {
+                try {
+                    this.sendTrackedMessage(receiverId, deferredMessages.poll());
+                } catch (Exception exception) {
+                    exception.printStackTrace();
+                }
+            }
+            if (deferredMessages.isEmpty()) {
+                deferredMessagesIterator.remove();
+            }
+        }
+    }
+
+    private void flushSendingMessages() {
+        long currentTime = System.nanoTime();
+        for (int playerId : acknowledgementsCollector.getPendingPlayerIds()) {
+            if (isAcknowledgementsSendingRequested || datagramBatcher.hasPendingMessagesFor(playerId)) {
+                for (var ackMessage : acknowledgementsCollector.pollAckMessages(playerId, getMyPlayerImage(), currentTime)) {
+                    this.sendMessageToAnotherPlayer(ackMessage);
+                }
+            }
+        }
+        isAcknowledgementsSendingRequested = false;
+        datagramBatcher.flush();
+    }
+
+    private void requestAcknowledgementsSending() {
+        isAcknowledgementsSendingRequested = true;
+        scheduleSendingFlush();
+    }
+
+    private void retransmitExpiredMessages() {
+        retransmissionsCheckTask = null;
+        if (deliveryTracker.isEmpty()) {
             return;
         }
-        processPlayersActivitiesByPings();
-        for (var requiredSendingMessage : requiredSendingMessages.entrySet()) {
+        long currentTime = System.nanoTime();
+        for (var outstandingMessage : deliveryTracker.pollExpiredMessages(currentTime)) {
             try {
-                CommunicationMessage correspondingMessage = requiredSendingMessage.getKey();
-                if (correspondingMessage.getReceiverPlayer() == null) {
-                    if (masterPlayer != null) {
-                        correspondingMessage.setReceiverPlayer(masterPlayer);
-                    } else {
-                        requiredSendingMessages.remove(correspondingMessage);
-                        continue;
-                    }
+                var correspondingMessage = outstandingMessage.getCommunicationMessage();
+                if (correspondingMessage.getSharedPayload() != null) {
+                    correspondingMessage.setSharedPayload(getActualStatePayloadFor(outstandingMessage.getReceiverId()),
+                            SnakesProto.GameMessage.TypeCase.STATE);
+                    sentStateOrdersByMsgSeq.put(outstandingMessage.getMsgSeq(), gameModel.getGameState().getStateOrder());
+                    this.rebaseLockstepWorkingState();
                 }
-                var currentStateMessage = SnakesProto.GameMessage.StateMsg.newBuilder()
-                        .setState(gameModel.getGameState());
-                var updatedByCurrentStateMessage = correspondingMessage.getMessage().toBuilder()
-                        .setState(currentStateMessage).build();
-                correspondingMessage.setMessage(updatedByCurrentStateMessage);
                 this.sendMessageToAnotherPlayer(correspondingMessage);
+                outstandingMessage.incrementRetransmissionsNumber();
+                long retransmissionTimeout = getRetransmissionTimeoutFor(outstandingMessage.getReceiverId(),
+                        outstandingMessage.getRetransmissionsNumber());
+                deliveryTracker.rescheduleRetransmission(outstandingMessage, currentTime + retransmissionTimeout);
             } catch (Exception exception) {
                 exception.printStackTrace();
             }
         }
+        flushSendingMessages();
+        if (!deliveryTracker.isEmpty()) {
+            scheduleRetransmissionsCheck(deliveryTracker.getNextRetransmissionDeadline());
+        }
+    }
+
+    private long getRetransmissionTimeoutFor(int receiverId, int retransmissionsNumber) {
+        // Получатель может придержать подтверждение до ping_delay_ms, поэтому ждём его дольше RTT
+        return getRoundTripTimeEstimatorFor(receiverId).getRetransmissionTimeout(retransmissionsNumber) +
+                TimeUnit.MILLISECONDS.toNanos(gameModel.getGameState().getConfig().getPingDelayMs());
+    }
+
+    private RoundTripTimeEstimator getRoundTripTimeEstimatorFor(int playerId) {
+        return roundTripTimeEstimatorsByPlayer.computeIfAbsent(playerId, id -> new RoundTripTimeEstimator(
+                TimeUnit.MILLISECONDS.toNanos(gameModel.getGameState().getConfig().getPingDelayMs())));
+    }
+
+    public RoundTripTimeEstimator getRoundTripTimeEstimator(int playerId) {
+        return roundTripTimeEstimatorsByPlayer.get(playerId);
+    }
+
+    private void sendMessageToAnotherPlayer(CommunicationMessage sendingMessage) {
+        if (DebugPrinter.isMessagesTracingEnabled()) {
+            DebugPrinter.printWithSpecifiedDateAndName(this.getClass().getSimpleName(),
+                    "Send message " + sendingMessage.getMessageType() +
+                            " to " + sendingMessage.getMessage().getReceiverId() +
+                            " from " + sendingMessage.getMessage().getSenderId());
+        }
+        if (!sendingMessage.getMessageType().equals(SnakesProto.GameMessage.TypeCase.ACK)) {
+            lastReliableSendingTimesByPlayer.put(sendingMessage.getReceiverPlayer().getId(), System.nanoTime());
+        }
+        datagramBatcher.add(sendingMessage);
     }
 
-    private void sendMessageToAnotherPlayer(CommunicationMessage sendingMessage) throws IOException {
-        var messageBytes = sendingMessage.getMessage().toByteArray();
-        sendingDatagramPacket = new DatagramPacket(
-                messageBytes,
-                messageBytes.length,
-                InetAddress.getByName(sendingMessage.getReceiverPlayer().getIpAddress()),
-                sendingMessage.getReceiverPlayer().getPort());
+    private void detectMasterFailure() {
+        if (MASTER_ROLE.equals(nodeRole) || masterPlayer == null) {
+            return;
+        }
+        int masterId = masterPlayer.getId();
+        long currentTime = System.nanoTime();
+        if (!failureDetector.isSuspected(masterId, currentTime)) {
+            return;
+        }
         DebugPrinter.printWithSpecifiedDateAndName(this.getClass().getSimpleName(),
-                "Send message " + sendingMessage.getMessage().getTypeCase() +
-                        " to " + sendingMessage.getMessage().getReceiverId() +
-                        " from " + sendingMessage.getMessage().getSenderId());
-        datagramSocket.send(sendingDatagramPacket);
+                "Master " + masterId + " failure detected in " +
+                        TimeUnit.NANOSECONDS.toMillis(currentTime - failureDetector.getLastHeartbeatTime(masterId)) +
+                        " ms after its last message, suspicion level " +
+                        failureDetector.getSuspicionLevel(masterId, currentTime));
+        failureDetector.remove(masterId);
+        if (nodeRole.equals(DEPUTY_ROLE)) {
+            promoteDeputyToMaster(masterId);
+        } else if (nodeRole.equals(NORMAL_ROLE)) {
+            var deputyMasterPlayer = GamePlayersMaker.getDeputyPlayerFromList(gameModel.getGameState().getPlayers());
+            if (deputyMasterPlayer != null) {
+                changeMasterPlayer(deputyMasterPlayer);
+            }
+        }
+    }
+
+    private void promoteDeputyToMaster(int previousMasterId) {
+        nodeRole = MASTER_ROLE;
+        deputyPlayer = null;
+        gameModel.rebuiltGameModel(previousMasterId, nodeId.hashCode());
+        long currentTime = System.nanoTime();
+        for (var player : gameModel.getGameState().getPlayers().getPlayersList()) {
+            if (player.getId() != nodeId.hashCode() && !VIEWER_ROLE.equals(player.getRole())) {
+                failureDetector.heartbeat(player.getId(), currentTime);
+                if (deputyPlayer == null) {
+                    this.sendRoleChangeMessage(player, MASTER_ROLE, DEPUTY_ROLE);
+                    gameModel.changePlayerGameStatus(player.getId(), DEPUTY_ROLE, SnakesProto.GameState.Snake.SnakeState.ALIVE);
+                    deputyPlayer = player;
+                } else {
+                    this.sendRoleChangeMessage(player, MASTER_ROLE, NORMAL_ROLE);
+                }
+            }
+        }
+        changeMasterPlayer(GamePlayersMaker.getMasterPlayerFromList(gameModel.getGameState().getPlayers()));
+    }
+
+    private void changeMasterPlayer(SnakesProto.GamePlayer newMasterPlayer) {
+        masterPlayer = newMasterPlayer;
+        gameModel.setSessionMasterId(newMasterPlayer.getId());
     }
 
     private void processPlayersActivitiesByPings() {
-        long currentTimeMs = getEpochMillisBySystemClockInstant();
         for (var activityTimestamp : gameModel.getActivitiesTimestampsByPlayer().entrySet()) {
-            if (currentTimeMs - activityTimestamp.getValue().toEpochMilli() >
-                    gameModel.getGameState().getConfig().getNodeTimeoutMs()) {
+            if (failureDetector.isSuspected(activityTimestamp.getKey(), System.nanoTime())) {
                 if (gameModel.getPlayerById(activityTimestamp.getKey()) != null) {
-                    if (MASTER_ROLE.equals(gameModel.getPlayerById(activityTimestamp.getKey()).getRole())) {
-                        if (nodeRole.equals(DEPUTY_ROLE)) {
-                            nodeRole = MASTER_ROLE;
+                    long currentTime = System.nanoTime();
+                    long nodeTimeout = TimeUnit.MILLISECONDS.toNanos(gameModel.getGameState().getConfig().getNodeTimeoutMs());
+                    // Игрок отпал, только если дольше node_timeout_ms и молчит, и не подтверждает сообщения, ping-и для этого не нужны
+                    long silenceTime = currentTime - failureDetector.getLastHeartbeatTime(activityTimestamp.getKey());
+                    long unconfirmedTime = currentTime -
+                            deliveryTracker.getUnconfirmedSinceTime(activityTimestamp.getKey(), currentTime);
+                    if (silenceTime > nodeTimeout && unconfirmedTime > nodeTimeout) {
+                        gameModel.changePlayerGameStatus(activityTimestamp.getKey(), VIEWER_ROLE, SnakesProto.GameState.Snake.SnakeState.ZOMBIE);
+                        deliveryTracker.forgetReceiver(activityTimestamp.getKey());
+                        deferredMessagesByReceiver.remove(activityTimestamp.getKey());
+                        lastReliableSendingTimesByPlayer.remove(activityTimestamp.getKey());
+                        failureDetector.remove(activityTimestamp.getKey());
+                        if (deputyPlayer != null && deputyPlayer.getId() == activityTimestamp.getKey()) {
                             deputyPlayer = null;
-                            gameModel.rebuiltGameModel(nodeId.hashCode());
-                            for (var player : gameModel.getGameState().getPlayers().getPlayersList()) {
-                                if (player.getId() != nodeId.hashCode() && !VIEWER_ROLE.equals(player.getRole())) {
-                                    if (deputyPlayer == null) {
-                                        this.sendRoleChangeMessage(player, MASTER_ROLE, DEPUTY_ROLE);
-                                        gameModel.changePlayerGameStatus(player.getId(), DEPUTY_ROLE, SnakesProto.GameState.Snake.SnakeState.ALIVE);
-                                        deputyPlayer = player;
-                                    } else {
-                                        this.sendRoleChangeMessage(player, MASTER_ROLE, NORMAL_ROLE);
-                                    }
-                                }
-                            }
-                            masterPlayer = GamePlayersMaker.getMasterPlayerFromList(gameModel.getGameState().getPlayers());
-                        } else if (nodeRole.equals(NORMAL_ROLE)) {
-                            masterPlayer = GamePlayersMaker.getDeputyPlayerFromList(gameModel.getGameState().getPlayers());
-                        }
-                    }
-                    for (var timestamp : requiredConfirmationMessages.entrySet()) {
-                        var message = timestamp.getKey();
-                        if (message.getMessage().getReceiverId() == activityTimestamp.getKey()) {
-                            if (getEpochMillisBySystemClockInstant() - timestamp.getValue().toEpochMilli() >
-                                    gameModel.getGameState().getConfig().getNodeTimeoutMs()) {
-                                gameModel.changePlayerGameStatus(activityTimestamp.getKey(), VIEWER_ROLE, SnakesProto.GameState.Snake.SnakeState.ZOMBIE);
-                                if (deputyPlayer != null && deputyPlayer.getId() == activityTimestamp.getKey()) {
-                                    deputyPlayer = null;
-                                }
-                            }
                         }
                     }
                     if (deputyPlayer == null) {
@@ -276,39 +521,211 @@ public class NetworkNode extends Subscriber {
                             }
                         }
                     }
-                    this.sendPingMessage(gameModel.getPlayerById(activityTimestamp.getKey()));
+                    Long lastSendingTime = lastReliableSendingTimesByPlayer.get(activityTimestamp.getKey());
+                    if (lastSendingTime == null || currentTime - lastSendingTime >=
+                            TimeUnit.MILLISECONDS.toNanos(gameModel.getGameState().getConfig().getPingDelayMs())) {
+                        this.sendPingMessage(gameModel.getPlayerById(activityTimestamp.getKey()));
+                    }
                 }
             }
         }
-        lastSentMessageTimestamp = getEpochMillisBySystemClockInstant();
-        System.gc();
+        if (!acknowledgementsCollector.isEmpty()) {
+            requestAcknowledgementsSending();
+        }
     }
 
-    private boolean makeNextStepIfTimePassed() {
-        boolean hasTimePassed = false;
-        int stateDelay = gameModel.getGameState().getConfig().getStateDelayMs();
-        if (moreTimeHasPassedThanPeriod(lastStateTimestamp, stateDelay) && nodeRole.equals(MASTER_ROLE)) {
+    private void makeNextStepIfMaster() {
+        if (!nodeRole.equals(MASTER_ROLE)) {
+            gameModel.applyPendingCommands();
+        } else {
             gameModel.makeGameNextStep();
             deputyPlayer = GamePlayersMaker.getDeputyPlayerFromList(gameModel.getGameState().getPlayers());
-            for (var player : gameModel.getGameState().getPlayers().getPlayersList()) {
+            var actualState = gameModel.getGameState();
+            sharedStatePayload = serializeStatePayload(actualState);
+            Map<Integer, ByteString> deltaPayloadsByBaseOrder = new HashMap<>();
+            ByteString lockstepTickPayload = null;
+            boolean isStateSent = false;
+            var interestChunks = isInterestAreaUsed(actualState) ? new InterestChunks(actualState) : null;
+            if (interestChunks == null) {
+                sentInterestStatesByPlayer.clear();
+            }
+            for (var player : actualState.getPlayers().getPlayersList()) {
                 if (nodeId.hashCode() != player.getId()) {
-                    requiredSendingMessages.put(
-                            CommunicationMessage.builder()
-                                    .message(null)
-                                    .senderPlayer(masterPlayer)
-                                    .receiverPlayer(player)
-                                    .build(),
-                            Instant.now());
+                    var statePayload = sharedStatePayload;
+                    var statePayloadType = SnakesProto.GameMessage.TypeCase.STATE;
+                    var baseState = getAckedBaseState(player.getId());
+                    if (interestChunks != null) {
+                        var interestBaseState = getAckedInterestState(player.getId());
+                        var interestState = makeInterestStateFor(player.getId(), interestChunks, actualState);
+                        if (interestBaseState != null) {
+                            statePayload = serializeStateDeltaPayload(interestBaseState, interestState);
+                            statePayloadType = SnakesProto.GameMessage.TypeCase.STATE_DELTA;
+                        } else {
+                            statePayload = serializeStatePayload(interestState);
+                        }
+                    } else if (isLockstepFollowedBy(player.getId(), actualState.getStateOrder())) {
+                        if (lockstepTickPayload == null) {
+                            lockstepTickPayload = serializeLockstepTickPayload(actualState);
+                        }
+                        statePayload = lockstepTickPayload;
+                        statePayloadType = SnakesProto.GameMessage.TypeCase.LOCKSTEP_TICK;
+                    } else if (baseState != null) {
+                        statePayload = deltaPayloadsByBaseOrder.computeIfAbsent(baseState.getStateOrder(),
+                                baseOrder -> serializeStateDeltaPayload(baseState, actualState));
+                        statePayloadType = SnakesProto.GameMessage.TypeCase.STATE_DELTA;
+                    }
+                    var stateEnvelope = SnakesProto.GameMessage.newBuilder()
+                            .setMsgSeq(incrementStateNumber())
+                            .setSenderId(nodeId.hashCode())
+                            .setReceiverId(player.getId())
+                            .build();
+                    sentStateOrdersByMsgSeq.put(stateEnvelope.getMsgSeq(), actualState.getStateOrder());
+                    var stateMessage = CommunicationMessage.builder()
+                            .message(stateEnvelope)
+                            .senderPlayer(masterPlayer)
+                            .receiverPlayer(player)
+                            .build();
+                    stateMessage.setSharedPayload(statePayload, statePayloadType);
+                    requiredSendingMessages.add(stateMessage);
+                    isStateSent |= (statePayload != lockstepTickPayload);
                 }
             }
-            hasTimePassed = true;
-            lastStateTimestamp = getEpochMillisBySystemClockInstant();
+            if (isStateSent) {
+                this.rebaseLockstepWorkingState();
+            }
+            sentInterestStatesByPlayer.keySet().removeIf(playerId -> gameModel.getPlayerById(playerId) == null);
+            sentStateOrdersByMsgSeq.values().removeIf(stateOrder -> gameModel.getRememberedGameState(stateOrder) == null);
+            if (isMasterHandoffRequested) {
+                isMasterHandoffRequested = false;
+                handOverMasterRoleToDeputy(actualState);
+            }
         }
-        return hasTimePassed;
     }
 
-    private boolean moreTimeHasPassedThanPeriod(long timeLabel, long period) {
-        return getEpochMillisBySystemClockInstant() - timeLabel > period;
+    private void handOverMasterRoleToDeputy(SnakesProto.GameState authoritativeState) {
+        if (deputyPlayer == null) {
+            DebugPrinter.printWithSpecifiedDateAndName(this.getClass().getSimpleName(),
+                    "There is no deputy to hand over master role, leave the game as viewer");
+            this.leaveGameAsViewer();
+            return;
+        }
+        int cutoverStateOrder = authoritativeState.getStateOrder() + 1;
+        var masterHandoffMessage = SnakesProto.GameMessage.MasterHandoffMsg.newBuilder()
+                .setState(authoritativeState)
+                .setCutoverStateOrder(cutoverStateOrder)
+                .build();
+        var gameMessage = SnakesProto.GameMessage.newBuilder()
+                .setMsgSeq(incrementStateNumber())
+                .setMasterHandoff(masterHandoffMessage)
+                .setSenderId(nodeId.hashCode())
+                .setReceiverId(deputyPlayer.getId())
+                .build();
+        requiredSendingMessages.add(CommunicationMessage.builder()
+                .message(gameMessage)
+                .senderPlayer(masterPlayer)
+                .receiverPlayer(deputyPlayer)
+                .build());
+        for (var player : authoritativeState.getPlayers().getPlayersList()) {
+            if (player.getId() != nodeId.hashCode() && player.getId() != deputyPlayer.getId()) {
+                this.sendRoleChangeMessage(player, VIEWER_ROLE, player.getRole());
+            }
+        }
+        DebugPrinter.printWithSpecifiedDateAndName(this.getClass().getSimpleName(),
+                "Hand over master role to " + deputyPlayer.getId() + " from state order " + cutoverStateOrder);
+        changeMasterPlayer(deputyPlayer);
+        deputyPlayer = null;
+        nodeRole = VIEWER_ROLE;
+        gameModel.changePlayerGameStatus(nodeId.hashCode(), VIEWER_ROLE, SnakesProto.GameState.Snake.SnakeState.ZOMBIE);
+        gameModel.applyPendingCommands();
+    }
+
+    private boolean isInterestAreaUsed(SnakesProto.GameState gameState) {
+        return gameState.getConfig().getInterestChunkSize() > 0;
+    }
+
+    // Заместитель держит полную копию игры, поэтому область интереса к нему не применяется
+    private SnakesProto.GameState makeInterestStateFor(int playerId, InterestChunks interestChunks,
+                                                       SnakesProto.GameState actualState) {
+        var interestState = (deputyPlayer != null && deputyPlayer.getId() == playerId) ?
+                actualState : interestChunks.makeInterestState(playerId);
+        var sentInterestStates = sentInterestStatesByPlayer.computeIfAbsent(playerId,
+                id -> new ConcurrentSkipListMap<>());
+        sentInterestStates.put(interestState.getStateOrder(), interestState);
+        while (sentInterestStates.size() > MAX_REMEMBERED_INTEREST_STATES) {
+            sentInterestStates.pollFirstEntry();
+        }
+        return interestState;
+    }
+
+    private SnakesProto.GameState getAckedInterestState(int playerId) {
+        Integer ackedStateOrder = ackedStateOrdersByPlayer.get(playerId);
+        var sentInterestStates = sentInterestStatesByPlayer.get(playerId);
+        if (ackedStateOrder == null || sentInterestStates == null) {
+            return null;
+        }
+        return sentInterestStates.get(ackedStateOrder);
+    }
+
+    private ByteString getActualStatePayloadFor(int playerId) {
+        var sentInterestStates = sentInterestStatesByPlayer.get(playerId);
+        if (sentInterestStates == null || sentInterestStates.isEmpty()) {
+            return sharedStatePayload;
+        }
+        return serializeStatePayload(sentInterestStates.lastEntry().getValue());
+    }
+
+    private boolean isLockstepFollowedBy(int playerId, int actualStateOrder) {
+        if (!isLockstepUsed || !gameModel.getLastTickInputs().isReplayable()) {
+            return false;
+        }
+        Integer ackedStateOrder = ackedStateOrdersByPlayer.get(playerId);
+        return ackedStateOrder != null && gameModel.getRememberedGameState(ackedStateOrder) != null &&
+                ackedStateOrder >= actualStateOrder - 1 - LOCKSTEP_MAX_LAG_TICKS;
+    }
+
+    private ByteString serializeLockstepTickPayload(SnakesProto.GameState actualState) {
+        int baseStateOrder = actualState.getStateOrder() - 1;
+        var lockstepTick = LockstepTicks.makeTick(baseStateOrder, gameModel.getLastTickInputs(),
+                lockstepRebasedStateOrder == baseStateOrder);
+        if (actualState.getStateOrder() % LOCKSTEP_HASH_PERIOD_IN_TICKS == 0) {
+            lockstepTick = lockstepTick.toBuilder().setStateHash(LockstepTicks.hashGameState(actualState)).build();
+        }
+        return SnakesProto.GameMessage.newBuilder()
+                .setLockstepTick(lockstepTick)
+                .buildPartial()
+                .toByteString();
+    }
+
+    // Порядок свободных клеток после загрузки состояния у мастера и узлов lockstep должен совпадать
+    private void rebaseLockstepWorkingState() {
+        int actualStateOrder = gameModel.getGameState().getStateOrder();
+        if (!isLockstepUsed || lockstepRebasedStateOrder == actualStateOrder) {
+            return;
+        }
+        gameModel.rebaseWorkingState();
+        lockstepRebasedStateOrder = actualStateOrder;
+    }
+
+    private SnakesProto.GameState getAckedBaseState(int playerId) {
+        Integer ackedStateOrder = ackedStateOrdersByPlayer.get(playerId);
+        if (ackedStateOrder == null) {
+            return null;
+        }
+        return gameModel.getRememberedGameState(ackedStateOrder);
+    }
+
+    private ByteString serializeStateDeltaPayload(SnakesProto.GameState baseState, SnakesProto.GameState actualState) {
+        return SnakesProto.GameMessage.newBuilder()
+                .setStateDelta(GameStateDeltas.makeDelta(baseState, actualState))
+                .buildPartial()
+                .toByteString();
+    }
+
+    private ByteString serializeStatePayload(SnakesProto.GameState gameState) {
+        return SnakesProto.GameMessage.newBuilder()
+                .setState(SnakesProto.GameMessage.StateMsg.newBuilder().setState(gameState))
+                .buildPartial()
+                .toByteString();
     }
 
     private void sendAnnouncementsToMulticastGroup() {
@@ -325,12 +742,8 @@ public class NetworkNode extends Subscriber {
                 .setAnnouncement(announcementMessage)
                 .build();
         try {
-            var messageBytes = gameMessage.toByteArray();
-            sendingDatagramPacket = new DatagramPacket(messageBytes,
-                    messageBytes.length,
-                    InetAddress.getByName(MULTICAST_IP),
-                    MULTICAST_PORT);
-            multicastSocket.send(sendingDatagramPacket);
+            multicastChannel.send(ByteBuffer.wrap(gameMessage.toByteArray()),
+                    new InetSocketAddress(multicastGroupAddress, MULTICAST_PORT));
         } catch (Exception exception) {
             exception.printStackTrace();
         }
@@ -348,7 +761,7 @@ public class NetworkNode extends Subscriber {
                 .senderPlayer(this.getMyPlayerImage())
                 .receiverPlayer(receiverPlayer)
                 .build();
-        requiredSendingMessages.put(communicationMessage, Instant.now());
+        addRequiredSendingMessage(communicationMessage);
     }
 
     public void handleReceivedUnicastMessage(SnakesProto.GameMessage message, InetAddress senderInetAddress, int senderPort) {
@@ -356,11 +769,16 @@ public class NetworkNode extends Subscriber {
         this.senderPort = senderPort;
         if (message != null) {
             gameModel.makePlayerTimestamp(message.getSenderId());
+            failureDetector.heartbeat(message.getSenderId(), System.nanoTime());
             switch (message.getTypeCase()) {
                 case ACK -> handleAckMessage(message);
                 case JOIN -> handleJoinMessage(message);
                 case STEER -> handleSteerMessage(message);
                 case STATE -> handleStateMessage(message);
+                case STATE_DELTA -> handleStateDeltaMessage(message);
+                case LOCKSTEP_TICK -> handleLockstepTickMessage(message);
+                case STEER_REPLICA -> handleSteerReplicaMessage(message);
+                case MASTER_HANDOFF -> handleMasterHandoffMessage(message);
                 case ROLE_CHANGE -> handleRoleChangeMessage(message);
                 default -> sendAckMessageTo(message);
             }
@@ -402,14 +820,72 @@ public class NetworkNode extends Subscriber {
     }
 
     private void handleStateMessage(SnakesProto.GameMessage stateMessage) {
-        var actualPlayersList = stateMessage.getState().getState().getPlayers();
+        acceptMasterGameState(stateMessage.getState().getState(), stateMessage);
+    }
+
+    private void handleStateDeltaMessage(SnakesProto.GameMessage stateDeltaMessage) {
+        var restoredState = gameModel.restoreGameStateFrom(stateDeltaMessage.getStateDelta());
+        if (restoredState == null) {
+            return;
+        }
+        acceptMasterGameState(restoredState, stateDeltaMessage);
+    }
+
+    private void acceptMasterGameState(SnakesProto.GameState actualState, SnakesProto.GameMessage stateMessage) {
+        var actualPlayersList = actualState.getPlayers();
         var actualMasterPlayerId = GamePlayersMaker.getMasterPlayerFromList(actualPlayersList);
         if (masterPlayer.getId() == Objects.requireNonNull(actualMasterPlayerId).getId()) {
-            gameModel.setGameState(stateMessage.getState().getState());
+            gameModel.setGameState(actualState);
+            isLockstepDesynced = false;
+            bufferedLockstepTicks.headMap(actualState.getStateOrder()).clear();
+            communicationScheduler.execute(() -> runScheduledTask(gameModel::applyPendingCommands));
         }
         this.sendAckMessageTo(stateMessage);
     }
 
+    private void handleLockstepTickMessage(SnakesProto.GameMessage lockstepTickMessage) {
+        if (masterPlayer == null || masterPlayer.getId() != lockstepTickMessage.getSenderId() ||
+                MASTER_ROLE.equals(nodeRole)) {
+            this.sendAckMessageTo(lockstepTickMessage);
+            return;
+        }
+        if (isLockstepDesynced) {
+            return;
+        }
+        bufferedLockstepTicks.put(lockstepTickMessage.getLockstepTick().getBaseStateOrder(), lockstepTickMessage);
+        while (bufferedLockstepTicks.size() > MAX_BUFFERED_LOCKSTEP_TICKS) {
+            bufferedLockstepTicks.pollLastEntry();
+        }
+        gameModel.applyPendingCommands();
+        int currentStateOrder = gameModel.getGameState().getStateOrder();
+        var staleTicks = bufferedLockstepTicks.headMap(currentStateOrder);
+        for (var staleTick : staleTicks.values()) {
+            this.sendAckMessageTo(staleTick);
+        }
+        staleTicks.clear();
+        SnakesProto.GameMessage nextTickMessage;
+        while (!isLockstepDesynced &&
+                (nextTickMessage = bufferedLockstepTicks.remove(gameModel.getGameState().getStateOrder())) != null) {
+            this.applyLockstepTick(nextTickMessage);
+        }
+    }
+
+    private void applyLockstepTick(SnakesProto.GameMessage lockstepTickMessage) {
+        var lockstepTick = lockstepTickMessage.getLockstepTick();
+        gameModel.applyLockstepTick(lockstepTick.getBaseStateOrder(), LockstepTicks.readTickInputs(lockstepTick),
+                lockstepTick.getRebaseBaseState());
+        if (lockstepTick.hasStateHash() &&
+                lockstepTick.getStateHash() != LockstepTicks.hashGameState(gameModel.getGameState())) {
+            DebugPrinter.printWithSpecifiedDateAndName(this.getClass().getSimpleName(),
+                    "Lockstep desync detected at state order " + gameModel.getGameState().getStateOrder() +
+                            ", wait for the full state from master");
+            isLockstepDesynced = true;
+            bufferedLockstepTicks.clear();
+            return;
+        }
+        this.sendAckMessageTo(lockstepTickMessage);
+    }
+
     private void handleRoleChangeMessage(SnakesProto.GameMessage changeRoleMessage) {
         var zombieSnakeIndicator = SnakesProto.GameState.Snake.SnakeState.ZOMBIE;
         if (changeRoleMessage.getRoleChange().hasSenderRole()) {
@@ -417,6 +893,21 @@ public class NetworkNode extends Subscriber {
                 gameModel.changePlayerGameStatus(changeRoleMessage.getSenderId(),
                         changeRoleMessage.getRoleChange().getSenderRole(),
                         zombieSnakeIndicator);
+                if (masterPlayer != null && masterPlayer.getId() == changeRoleMessage.getSenderId() &&
+                        !MASTER_ROLE.equals(nodeRole)) {
+                    var deputyMasterPlayer = GamePlayersMaker.getDeputyPlayerFromList(gameModel.getGameState().getPlayers());
+                    if (deputyMasterPlayer != null) {
+                        failureDetector.remove(masterPlayer.getId());
+                        changeMasterPlayer(deputyMasterPlayer);
+                    }
+                }
+            }
+            if (changeRoleMessage.getRoleChange().getSenderRole().equals(MASTER_ROLE) &&
+                    !MASTER_ROLE.equals(nodeRole)) {
+                if (masterPlayer != null && masterPlayer.getId() != changeRoleMessage.getSenderId()) {
+                    failureDetector.remove(masterPlayer.getId());
+                }
+                changeMasterPlayer(this.getPlayerImageByMessage(changeRoleMessage).toBuilder().setRole(MASTER_ROLE).build());
             }
         }
         if (changeRoleMessage.getRoleChange().hasReceiverRole()) {
@@ -425,36 +916,103 @@ public class NetworkNode extends Subscriber {
             }
             if (changeRoleMessage.getRoleChange().getReceiverRole().equals(MASTER_ROLE) &&
                     !MASTER_ROLE.equals(nodeRole)) {
-                gameModel.rebuiltGameModel(nodeId.hashCode());
+                int previousMasterId = gameModel.getSessionMasterId();
+                communicationScheduler.execute(() -> runScheduledTask(() ->
+                        gameModel.rebuiltGameModel(previousMasterId, nodeId.hashCode())));
             }
         }
         this.sendAckMessageTo(changeRoleMessage);
     }
 
     private void handleSteerMessage(SnakesProto.GameMessage steerMessage) {
-        var chosenDirection = steerMessage.getSteer().getDirection();
-        gameModel.changeSnakeDirectionById(chosenDirection, steerMessage.getSenderId(), steerMessage.getMsgSeq());
+        var steer = steerMessage.getSteer();
+        List<SnakesProto.Direction> chosenDirections = new ArrayList<>();
+        chosenDirections.add(steer.getDirection());
+        chosenDirections.addAll(steer.getNextDirectionsList());
+        gameModel.changeSnakeDirectionById(chosenDirections, steerMessage.getSenderId(), steerMessage.getMsgSeq());
+        this.sendSteerReplicaMessage(steerMessage.getSenderId(), chosenDirections, steerMessage.getMsgSeq());
         this.sendAckMessageTo(steerMessage);
     }
 
-    private void handleAckMessage(SnakesProto.GameMessage message) {
-        for (var timestamp : requiredSendingMessages.entrySet()) {
-            CommunicationMessage messageByTimestamp = timestamp.getKey();
-            if (messageByTimestamp.getMessage().getMsgSeq() == message.getMsgSeq() &&
-                    message.getSenderId() == messageByTimestamp.getReceiverPlayer().getId()) {
-                requiredSendingMessages.remove(messageByTimestamp);
-            }
+    private void handleMasterHandoffMessage(SnakesProto.GameMessage masterHandoffMessage) {
+        this.sendAckMessageTo(masterHandoffMessage);
+        if (!DEPUTY_ROLE.equals(nodeRole)) {
+            return;
+        }
+        var masterHandoff = masterHandoffMessage.getMasterHandoff();
+        gameModel.setGameState(masterHandoff.getState());
+        failureDetector.remove(masterHandoffMessage.getSenderId());
+        this.promoteDeputyToMaster(masterHandoffMessage.getSenderId());
+        long stateDelay = TimeUnit.MILLISECONDS.toNanos(masterHandoff.getState().getConfig().getStateDelayMs());
+        var roundTripTimeEstimator = getRoundTripTimeEstimatorFor(masterHandoffMessage.getSenderId());
+        long deliveryDelay = roundTripTimeEstimator.hasMeasurements() ?
+                roundTripTimeEstimator.getSmoothedRoundTripTime() / 2 : 0;
+        this.rescheduleGameStep(System.nanoTime() + Math.max(stateDelay - deliveryDelay, 0));
+        DebugPrinter.printWithSpecifiedDateAndName(this.getClass().getSimpleName(),
+                "Took over master role from " + masterHandoffMessage.getSenderId() +
+                        " from state order " + masterHandoff.getCutoverStateOrder());
+    }
+
+    private void handleSteerReplicaMessage(SnakesProto.GameMessage steerReplicaMessage) {
+        var steerReplica = steerReplicaMessage.getSteerReplica();
+        if (DEPUTY_ROLE.equals(nodeRole)) {
+            List<SnakesProto.Direction> chosenDirections = new ArrayList<>();
+            chosenDirections.add(steerReplica.getDirection());
+            chosenDirections.addAll(steerReplica.getNextDirectionsList());
+            gameModel.changeSnakeDirectionById(chosenDirections, steerReplica.getPlayerId(),
+                    steerReplica.getDirectionChangeNumber());
+        }
+        this.sendAckMessageTo(steerReplicaMessage);
+    }
+
+    private void sendSteerReplicaMessage(int playerId, List<SnakesProto.Direction> chosenDirections,
+                                         long directionChangeNumber) {
+        if (!MASTER_ROLE.equals(nodeRole) || deputyPlayer == null || deputyPlayer.getId() == playerId) {
+            return;
         }
+        var steerReplicaMessage = SnakesProto.GameMessage.SteerReplicaMsg.newBuilder()
+                .setPlayerId(playerId)
+                .setDirection(chosenDirections.get(0))
+                .addAllNextDirections(chosenDirections.subList(1, chosenDirections.size()))
+                .setDirectionChangeNumber(directionChangeNumber)
+                .build();
+        var gameMessage = SnakesProto.GameMessage.newBuilder()
+                .setMsgSeq(incrementStateNumber())
+                .setSteerReplica(steerReplicaMessage)
+                .setSenderId(nodeId.hashCode())
+                .setReceiverId(deputyPlayer.getId())
+                .build();
+        CommunicationMessage communicationMessage = CommunicationMessage.builder()
+                .message(gameMessage)
+                .senderPlayer(this.getMyPlayerImage())
+                .receiverPlayer(deputyPlayer)
+                .build();
+        addRequiredSendingMessage(communicationMessage);
+    }
 
-        for (var messageToConfirm : requiredConfirmationMessages.entrySet()) {
-            CommunicationMessage correspondingMessage = messageToConfirm.getKey();
-            if (correspondingMessage.getMessage().getMsgSeq() == message.getMsgSeq() &&
-                    message.getSenderId() == correspondingMessage.getReceiverPlayer().getId()) {
-                DebugPrinter.printWithSpecifiedDateAndName(this.getClass().getSimpleName(),
-                        "Got ack for [" + message.getMsgSeq() + "] " +
-                                "from [" + message.getSenderId() + "]");
-                requiredConfirmationMessages.remove(correspondingMessage);
+    private void handleAckMessage(SnakesProto.GameMessage message) {
+        long currentTime = System.nanoTime();
+        for (long ackedMsgSeq : AcknowledgementsCollector.getAckedMsgSeqs(message)) {
+            Integer ackedStateOrder = sentStateOrdersByMsgSeq.remove(ackedMsgSeq);
+            if (ackedStateOrder != null) {
+                ackedStateOrdersByPlayer.merge(message.getSenderId(), ackedStateOrder, Math::max);
+            }
+            var confirmedMessage = deliveryTracker.confirm(message.getSenderId(), ackedMsgSeq);
+            if (confirmedMessage == null) {
+                continue;
             }
+            // Алгоритм Карна: повторно отправленные сообщения RTT не измеряют
+            long roundTripTime = currentTime - confirmedMessage.getFirstSendingTime() -
+                    TimeUnit.MILLISECONDS.toNanos(message.getAck().getAckDelayMs());
+            if (ackedMsgSeq == message.getMsgSeq() && confirmedMessage.getRetransmissionsNumber() == 0 &&
+                    roundTripTime > 0) {
+                getRoundTripTimeEstimatorFor(message.getSenderId()).addMeasurement(roundTripTime);
+            }
+        }
+        if (DebugPrinter.isMessagesTracingEnabled()) {
+            DebugPrinter.printWithSpecifiedDateAndName(this.getClass().getSimpleName(),
+                    "Got ack for [" + message.getMsgSeq() + "] and " + message.getAck().getRangesCount() +
+                            " ranges from [" + message.getSenderId() + "]");
         }
     }
 
@@ -470,28 +1028,26 @@ public class NetworkNode extends Subscriber {
     }
 
     public void handleLogoutAction() {
+        communicationScheduler.execute(() -> runScheduledTask(() -> {
+            if (MASTER_ROLE.equals(nodeRole)) {
+                isMasterHandoffRequested = true;
+            } else {
+                this.leaveGameAsViewer();
+            }
+        }));
+    }
+
+    private void leaveGameAsViewer() {
         var zombieSnakeIndicator = SnakesProto.GameState.Snake.SnakeState.ZOMBIE;
         this.sendRoleChangeMessage(null, SnakesProto.NodeRole.VIEWER, null);
         gameModel.changePlayerGameStatus(nodeId.hashCode(), VIEWER_ROLE, zombieSnakeIndicator);
         nodeRole = VIEWER_ROLE;
+        gameModel.applyPendingCommands();
         gameModel.informAllSubscribers();
     }
 
     public void sendAckMessageTo(SnakesProto.GameMessage message) {
-        var ackMessageImage = SnakesProto.GameMessage.AckMsg.newBuilder().build();
-        var gameMessage = SnakesProto.GameMessage.newBuilder()
-                .setAck(ackMessageImage)
-                .setMsgSeq(message.getMsgSeq())
-                .setSenderId(nodeId.hashCode())
-                .build();
-        CommunicationMessage communicationMessage = CommunicationMessage.builder()
-                .message(gameMessage)
-                .senderPlayer(this.getMyPlayerImage())
-                .receiverPlayer(this.getPlayerImageByMessage(message))
-                .build();
-        requiredSendingMessages.put(communicationMessage, Instant.now());
-        DebugPrinter.printWithSpecifiedDateAndName(this.getClass().getSimpleName(),
-                "Amount of required sending messages is [" + requiredSendingMessages.size() + "]");
+        acknowledgementsCollector.add(this.getPlayerImageByMessage(message), message.getMsgSeq(), System.nanoTime());
     }
 
     private SnakesProto.GamePlayer getPlayerImageByMessage(SnakesProto.GameMessage message) {
@@ -504,24 +1060,26 @@ public class NetworkNode extends Subscriber {
     }
 
     public void sendJoinGameMessage(SnakesProto.GamePlayer receiverPlayer) {
-        nodeRole = NORMAL_ROLE;
-        masterPlayer = receiverPlayer;
-        gameModel.setSessionMasterId(masterPlayer.getId());
-        var joinMessage = SnakesProto.GameMessage.JoinMsg.newBuilder()
-                .setOnlyView(false)
-                .setName(this.nodeName)
-                .build();
-        var gameMessage = SnakesProto.GameMessage.newBuilder()
-                .setMsgSeq(incrementStateNumber())
-                .setJoin(joinMessage)
-                .setSenderId(nodeId.hashCode())
-                .setReceiverId(receiverPlayer.getId())
-                .build();
-        CommunicationMessage communicationMessage = CommunicationMessage.builder()
-                .message(gameMessage)
-                .senderPlayer(this.getMyPlayerImage())
-                .receiverPlayer(receiverPlayer).build();
-        requiredSendingMessages.put(communicationMessage, Instant.now());
+        communicationScheduler.execute(() -> runScheduledTask(() -> {
+            nodeRole = NORMAL_ROLE;
+            changeMasterPlayer(receiverPlayer);
+            var joinMessage = SnakesProto.GameMessage.JoinMsg.newBuilder()
+                    .setOnlyView(false)
+                    .setName(this.nodeName)
+                    .build();
+            var gameMessage = SnakesProto.GameMessage.newBuilder()
+                    .setMsgSeq(incrementStateNumber())
+                    .setJoin(joinMessage)
+                    .setSenderId(nodeId.hashCode())
+                    .setReceiverId(receiverPlayer.getId())
+                    .build();
+            CommunicationMessage communicationMessage = CommunicationMessage.builder()
+                    .message(gameMessage)
+                    .senderPlayer(this.getMyPlayerImage())
+                    .receiverPlayer(receiverPlayer).build();
+            requiredSendingMessages.add(communicationMessage);
+            scheduleSendingFlush();
+        }));
     }
 
     private void sendRoleChangeMessage(SnakesProto.GamePlayer receiverPlayer,
@@ -545,7 +1103,7 @@ public class NetworkNode extends Subscriber {
                 .message(gameMessage)
                 .senderPlayer(this.getMyPlayerImage())
                 .receiverPlayer(receiverPlayer).build();
-        requiredSendingMessages.put(communicationMessage, Instant.now());
+        addRequiredSendingMessage(communicationMessage);
     }
 
     private SnakesProto.GamePlayer getMyPlayerImage() {
@@ -558,25 +1116,62 @@ public class NetworkNode extends Subscriber {
     }
 
     public void sendChangeSnakeDirection(SnakesProto.Direction chosenDirection) {
+        gameModel.predictSnakeDirection(nodeId.hashCode(), chosenDirection);
+        communicationScheduler.execute(() -> runScheduledTask(() -> this.queueSteerDirection(chosenDirection)));
+    }
+
+    private void queueSteerDirection(SnakesProto.Direction chosenDirection) {
+        boolean isRepeatedDirection = !queuedSteerDirections.isEmpty() &&
+                queuedSteerDirections.get(queuedSteerDirections.size() - 1).equals(chosenDirection);
+        if (isRepeatedDirection || queuedSteerDirections.size() >= MAX_QUEUED_STEER_DIRECTIONS) {
+            return;
+        }
+        queuedSteerDirections.add(chosenDirection);
+        if (isSteerFlushScheduled) {
+            return;
+        }
+        long currentTime = System.nanoTime();
+        long nextSteerSendingTime = lastSteerSendingTime +
+                TimeUnit.MILLISECONDS.toNanos(gameModel.getGameConfig().getStateDelayMs());
+        if (lastSteerSendingTime == 0 || currentTime >= nextSteerSendingTime) {
+            this.flushQueuedSteerDirections();
+        } else {
+            isSteerFlushScheduled = true;
+            communicationScheduler.schedule(() -> runScheduledTask(this::flushQueuedSteerDirections),
+                    nextSteerSendingTime - currentTime, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void flushQueuedSteerDirections() {
+        isSteerFlushScheduled = false;
+        if (queuedSteerDirections.isEmpty()) {
+            return;
+        }
+        List<SnakesProto.Direction> chosenDirections = List.copyOf(queuedSteerDirections);
+        queuedSteerDirections.clear();
+        lastSteerSendingTime = System.nanoTime();
+        long directionChangeNumber = incrementStateNumber();
         if (nodeRole.equals(MASTER_ROLE)) {
-            int sessionMasterId = gameModel.getSessionMasterId();
-            long masterDirectionChangesNumber = gameModel.getDirectionChangesNumbersByPlayer().get(sessionMasterId);
-            masterDirectionChangesNumber++;
-            gameModel.changeSnakeDirectionById(chosenDirection,
-                    sessionMasterId,
-                    masterDirectionChangesNumber);
+            gameModel.changeSnakeDirectionById(chosenDirections,
+                    gameModel.getSessionMasterId(),
+                    directionChangeNumber);
+            this.sendSteerReplicaMessage(nodeId.hashCode(), chosenDirections, directionChangeNumber);
+        }
+        if (nodeRole.equals(DEPUTY_ROLE)) {
+            gameModel.changeSnakeDirectionById(chosenDirections, nodeId.hashCode(), directionChangeNumber);
         }
         if (nodeRole.equals(NORMAL_ROLE) || nodeRole.equals(DEPUTY_ROLE)) {
-            this.sendSteerMessage(chosenDirection);
+            this.sendSteerMessage(chosenDirections, directionChangeNumber);
         }
     }
 
-    private void sendSteerMessage(SnakesProto.Direction chosenDirection) {
+    private void sendSteerMessage(List<SnakesProto.Direction> chosenDirections, long directionChangeNumber) {
         var steerMessage = SnakesProto.GameMessage.SteerMsg.newBuilder()
-                .setDirection(chosenDirection)
+                .setDirection(chosenDirections.get(0))
+                .addAllNextDirections(chosenDirections.subList(1, chosenDirections.size()))
                 .build();
         var gameMessage = SnakesProto.GameMessage.newBuilder()
-                .setMsgSeq(incrementStateNumber())
+                .setMsgSeq(directionChangeNumber)
                 .setSteer(steerMessage)
                 .setSenderId(nodeId.hashCode())
                 .setReceiverId(masterPlayer.getId())
@@ -586,13 +1181,16 @@ public class NetworkNode extends Subscriber {
                 .senderPlayer(this.getMyPlayerImage())
                 .receiverPlayer(null)
                 .build();
-        requiredSendingMessages.put(communicationMessage, Instant.now());
+        addRequiredSendingMessage(communicationMessage);
     }
 
-    public static int incrementStateNumber() {
-        DebugPrinter.printWithSpecifiedDateAndName(NetworkNode.class.getSimpleName(),
-                "Current state number is [" + gameStateNumber + "]");
-        return gameStateNumber++;
+    public static long incrementStateNumber() {
+        long currentStateNumber = gameStateNumber.getAndIncrement();
+        if (DebugPrinter.isMessagesTracingEnabled()) {
+            DebugPrinter.printWithSpecifiedDateAndName(NetworkNode.class.getSimpleName(),
+                    "Current state number is [" + currentStateNumber + "]");
+        }
+        return currentStateNumber;
     }
 
     public UUID getNodeId() {
@@ -600,16 +1198,32 @@ public class NetworkNode extends Subscriber {
     }
 
     public void updateState() {
-        viewController.updateAvailableGames(announcementsTimestamps);
+        if (viewController != null) {
+            viewController.updateAvailableGames(announcementsTimestamps);
+        }
+    }
+
+    public void setViewController(ViewController viewController) {
+        this.viewController = viewController;
+    }
+
+    public void launchNewGameAsMaster(SnakesProto.GameConfig gameConfig, boolean hasMasterSnake) {
+        communicationScheduler.execute(() -> runScheduledTask(() -> {
+            gameModel.launchNewGameAsMaster(gameConfig, nodeName, nodeId.hashCode(), myPort, hasMasterSnake);
+            ackedStateOrdersByPlayer.clear();
+            sentStateOrdersByMsgSeq.clear();
+            sentInterestStatesByPlayer.clear();
+            this.setNewDefaultMasterPlayer();
+        }));
     }
 
-    public void setNewDefaultMasterPlayer() {
-        this.masterPlayer = GamePlayersMaker.buildGamePlayerImage(
+    private void setNewDefaultMasterPlayer() {
+        this.changeMasterPlayer(GamePlayersMaker.buildGamePlayerImage(
                 nodeId.hashCode(),
                 nodeName,
                 myPort,
                 myInetAddress.getHostAddress(),
-                MASTER_ROLE);
+                MASTER_ROLE));
         this.nodeRole = MASTER_ROLE;
     }
 
@@ -0,0 +1,56 @@
+package app.networks;
+
+public class OutstandingMessage {
+    private final CommunicationMessage communicationMessage;
+    private final int receiverId;
+    private final long firstSendingTime;
+    private long retransmissionDeadline;
+    private int retransmissionsNumber = 0;
+    private boolean isConfirmed = false;
+
+    public OutstandingMessage(CommunicationMessage communicationMessage, int receiverId, long firstSendingTime) {
+        this.communicationMessage = communicationMessage;
+        this.receiverId = receiverId;
+        this.firstSendingTime = firstSendingTime;
+    }
+
+    public CommunicationMessage getCommunicationMessage() {
+        return communicationMessage;
+    }
+
+    public int getReceiverId() {
+        return receiverId;
+    }
+
+    public long getMsgSeq() {
+        return communicationMessage.getMessage().getMsgSeq();
+    }
+
+    public long getFirstSendingTime() {
+        return firstSendingTime;
+    }
+
+    public long getRetransmissionDeadline() {
+        return retransmissionDeadline;
+    }
+
+    public void setRetransmissionDeadline(long retransmissionDeadline) {
+        this.retransmissionDeadline = retransmissionDeadline;
+    }
+
+    public int getRetransmissionsNumber() {
+        return retransmissionsNumber;
+    }
+
+    public void incrementRetransmissionsNumber() {
+        retransmissionsNumber++;
+    }
+
+    public boolean isConfirmed() {
+        return isConfirmed;
+    }
+
+    public void markConfirmed() {
+        isConfirmed = true;
+    }
+}
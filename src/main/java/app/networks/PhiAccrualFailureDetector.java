@@ -0,0 +1,138 @@
+package app.networks;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+public class PhiAccrualFailureDetector implements FailureDetector {
+    public static final double DEFAULT_THRESHOLD = 8.0;
+    private static final int DEFAULT_MAX_SAMPLES_NUMBER = 200;
+    private static final long DEFAULT_MIN_STANDARD_DEVIATION = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long DEFAULT_ACCEPTABLE_HEARTBEAT_PAUSE = 0;
+    private static final long DEFAULT_FIRST_HEARTBEAT_ESTIMATE = TimeUnit.MILLISECONDS.toNanos(1000);
+    private static final long MIN_HEARTBEAT_INTERVAL = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final double threshold;
+    private final int maxSamplesNumber;
+    private final long minStandardDeviation;
+    private final long acceptableHeartbeatPause;
+    private final long firstHeartbeatEstimate;
+    private final HashMap<Integer, HeartbeatHistory> heartbeatHistoriesByPlayer = new HashMap<>();
+
+    public PhiAccrualFailureDetector(double threshold) {
+        this(threshold, DEFAULT_MAX_SAMPLES_NUMBER, DEFAULT_MIN_STANDARD_DEVIATION,
+                DEFAULT_ACCEPTABLE_HEARTBEAT_PAUSE, DEFAULT_FIRST_HEARTBEAT_ESTIMATE);
+    }
+
+    public PhiAccrualFailureDetector(double threshold, int maxSamplesNumber, long minStandardDeviation,
+                                     long acceptableHeartbeatPause, long firstHeartbeatEstimate) {
+        this.threshold = threshold;
+        this.maxSamplesNumber = maxSamplesNumber;
+        this.minStandardDeviation = minStandardDeviation;
+        this.acceptableHeartbeatPause = acceptableHeartbeatPause;
+        this.firstHeartbeatEstimate = firstHeartbeatEstimate;
+    }
+
+    @Override
+    public void heartbeat(int playerId, long arrivalTime) {
+        var heartbeatHistory = heartbeatHistoriesByPlayer.get(playerId);
+        if (heartbeatHistory == null) {
+            heartbeatHistory = new HeartbeatHistory(maxSamplesNumber);
+            heartbeatHistoriesByPlayer.put(playerId, heartbeatHistory);
+        } else {
+            long heartbeatInterval = arrivalTime - heartbeatHistory.getLastArrivalTime();
+            if (heartbeatInterval < MIN_HEARTBEAT_INTERVAL) {
+                return;
+            }
+            heartbeatHistory.addInterval(heartbeatInterval);
+        }
+        heartbeatHistory.setLastArrivalTime(arrivalTime);
+    }
+
+    @Override
+    public boolean isSuspected(int playerId, long currentTime) {
+        return getSuspicionLevel(playerId, currentTime) >= threshold;
+    }
+
+    @Override
+    public double getSuspicionLevel(int playerId, long currentTime) {
+        var heartbeatHistory = heartbeatHistoriesByPlayer.get(playerId);
+        if (heartbeatHistory == null) {
+            return 0;
+        }
+        double timeSinceLastHeartbeat = currentTime - heartbeatHistory.getLastArrivalTime();
+        double mean = acceptableHeartbeatPause;
+        double standardDeviation = minStandardDeviation;
+        if (heartbeatHistory.hasIntervals()) {
+            mean += heartbeatHistory.getMean();
+            standardDeviation = Math.max(heartbeatHistory.getStandardDeviation(), standardDeviation);
+        } else {
+            mean += firstHeartbeatEstimate;
+            standardDeviation = Math.max(firstHeartbeatEstimate / 4.0, standardDeviation);
+        }
+        double y = (timeSinceLastHeartbeat - mean) / standardDeviation;
+        double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+        if (timeSinceLastHeartbeat > mean) {
+            return -Math.log10(e / (1.0 + e));
+        }
+        return -Math.log10(1.0 - 1.0 / (1.0 + e));
+    }
+
+    @Override
+    public long getLastHeartbeatTime(int playerId) {
+        var heartbeatHistory = heartbeatHistoriesByPlayer.get(playerId);
+        return heartbeatHistory == null ? 0 : heartbeatHistory.getLastArrivalTime();
+    }
+
+    @Override
+    public void remove(int playerId) {
+        heartbeatHistoriesByPlayer.remove(playerId);
+    }
+
+    private static class HeartbeatHistory {
+        private final long[] intervals;
+        private int intervalsNumber = 0;
+        private int nextIntervalIndex = 0;
+        private double intervalsSum = 0;
+        private double intervalsSquaresSum = 0;
+        private long lastArrivalTime;
+
+        HeartbeatHistory(int maxSamplesNumber) {
+            this.intervals = new long[maxSamplesNumber];
+        }
+
+        void addInterval(long interval) {
+            if (intervalsNumber == intervals.length) {
+                long droppedInterval = intervals[nextIntervalIndex];
+                intervalsSum -= droppedInterval;
+                intervalsSquaresSum -= (double) droppedInterval * droppedInterval;
+            } else {
+                intervalsNumber++;
+            }
+            intervals[nextIntervalIndex] = interval;
+            nextIntervalIndex = (nextIntervalIndex + 1) % intervals.length;
+            intervalsSum += interval;
+            intervalsSquaresSum += (double) interval * interval;
+        }
+
+        boolean hasIntervals() {
+            return intervalsNumber > 0;
+        }
+
+        double getMean() {
+            return intervalsSum / intervalsNumber;
+        }
+
+        double getStandardDeviation() {
+            double mean = getMean();
+            return Math.sqrt(Math.max(intervalsSquaresSum / intervalsNumber - mean * mean, 0));
+        }
+
+        long getLastArrivalTime() {
+            return lastArrivalTime;
+        }
+
+        void setLastArrivalTime(long lastArrivalTime) {
+            this.lastArrivalTime = lastArrivalTime;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package app.networks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class ReceiveBuffersPool {
+    private final int bufferCapacity;
+    private final int maxPooledBuffersNumber;
+    private final ConcurrentLinkedQueue<ByteBuffer> pooledBuffers = new ConcurrentLinkedQueue<>();
+
+    public ReceiveBuffersPool(int bufferCapacity, int maxPooledBuffersNumber) {
+        this.bufferCapacity = bufferCapacity;
+        this.maxPooledBuffersNumber = maxPooledBuffersNumber;
+    }
+
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = pooledBuffers.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(bufferCapacity);
+        }
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer) {
+        buffer.clear();
+        if (pooledBuffers.size() < maxPooledBuffersNumber) {
+            pooledBuffers.offer(buffer);
+        }
+    }
+}
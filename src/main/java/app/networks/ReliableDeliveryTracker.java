@@ -0,0 +1,109 @@
+package app.networks;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class ReliableDeliveryTracker {
+    private static final long WHEEL_TICK_DURATION = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int WHEEL_SLOTS_NUMBER = 512;
+
+    private final int maxOutstandingMessagesPerReceiver;
+    private final HashMap<Integer, LinkedHashMap<Long, OutstandingMessage>> outstandingMessagesByReceiver = new HashMap<>();
+    private final HashMap<Integer, Long> outstandingStateMsgSeqsByReceiver = new HashMap<>();
+    private final HashMap<Integer, Long> unconfirmedSinceTimesByReceiver = new HashMap<>();
+    private final RetransmissionTimerWheel retransmissionTimerWheel =
+            new RetransmissionTimerWheel(WHEEL_TICK_DURATION, WHEEL_SLOTS_NUMBER, System.nanoTime());
+    private int outstandingMessagesNumber = 0;
+
+    public ReliableDeliveryTracker(int maxOutstandingMessagesPerReceiver) {
+        this.maxOutstandingMessagesPerReceiver = maxOutstandingMessagesPerReceiver;
+    }
+
+    public boolean canSendTo(int receiverId) {
+        var receiverMessages = outstandingMessagesByReceiver.get(receiverId);
+        return receiverMessages == null || receiverMessages.size() < maxOutstandingMessagesPerReceiver;
+    }
+
+    public void track(CommunicationMessage communicationMessage, int receiverId,
+                      long sendingTime, long retransmissionTimeout) {
+        var outstandingMessage = new OutstandingMessage(communicationMessage, receiverId, sendingTime);
+        outstandingMessagesByReceiver.computeIfAbsent(receiverId, id -> new LinkedHashMap<>())
+                .put(outstandingMessage.getMsgSeq(), outstandingMessage);
+        outstandingMessagesNumber++;
+        unconfirmedSinceTimesByReceiver.putIfAbsent(receiverId, sendingTime);
+        if (communicationMessage.getSharedPayload() != null) {
+            // Новое состояние вытесняет неподтверждённое старое из окна получателя
+            Long previousStateMsgSeq = outstandingStateMsgSeqsByReceiver.put(receiverId, outstandingMessage.getMsgSeq());
+            if (previousStateMsgSeq != null) {
+                removeOutstandingMessage(receiverId, previousStateMsgSeq);
+            }
+        }
+        rescheduleRetransmission(outstandingMessage, sendingTime + retransmissionTimeout);
+    }
+
+    public void rescheduleRetransmission(OutstandingMessage outstandingMessage, long retransmissionDeadline) {
+        outstandingMessage.setRetransmissionDeadline(retransmissionDeadline);
+        retransmissionTimerWheel.schedule(outstandingMessage);
+    }
+
+    public OutstandingMessage confirm(int receiverId, long msgSeq) {
+        var confirmedMessage = removeOutstandingMessage(receiverId, msgSeq);
+        var receiverMessages = outstandingMessagesByReceiver.get(receiverId);
+        if (receiverMessages == null) {
+            unconfirmedSinceTimesByReceiver.remove(receiverId);
+        } else {
+            unconfirmedSinceTimesByReceiver.put(receiverId,
+                    receiverMessages.values().iterator().next().getFirstSendingTime());
+        }
+        return confirmedMessage;
+    }
+
+    private OutstandingMessage removeOutstandingMessage(int receiverId, long msgSeq) {
+        var receiverMessages = outstandingMessagesByReceiver.get(receiverId);
+        if (receiverMessages == null) {
+            return null;
+        }
+        var outstandingMessage = receiverMessages.remove(msgSeq);
+        if (outstandingMessage == null) {
+            return null;
+        }
+        outstandingMessage.markConfirmed();
+        outstandingMessagesNumber--;
+        if (receiverMessages.isEmpty()) {
+            outstandingMessagesByReceiver.remove(receiverId);
+        }
+        outstandingStateMsgSeqsByReceiver.remove(receiverId, msgSeq);
+        return outstandingMessage;
+    }
+
+    public List<OutstandingMessage> pollExpiredMessages(long currentTime) {
+        return retransmissionTimerWheel.advanceTo(currentTime);
+    }
+
+    public long getNextRetransmissionDeadline() {
+        return retransmissionTimerWheel.getEarliestDeadline();
+    }
+
+    public long getUnconfirmedSinceTime(int receiverId, long defaultTime) {
+        return unconfirmedSinceTimesByReceiver.getOrDefault(receiverId, defaultTime);
+    }
+
+    public void forgetReceiver(int receiverId) {
+        unconfirmedSinceTimesByReceiver.remove(receiverId);
+        var receiverMessages = outstandingMessagesByReceiver.remove(receiverId);
+        if (receiverMessages == null) {
+            return;
+        }
+        for (var outstandingMessage : receiverMessages.values()) {
+            outstandingMessage.markConfirmed();
+        }
+        outstandingMessagesNumber -= receiverMessages.size();
+        outstandingStateMsgSeqsByReceiver.remove(receiverId);
+    }
+
+    public boolean isEmpty() {
+        return outstandingMessagesNumber == 0;
+    }
+}
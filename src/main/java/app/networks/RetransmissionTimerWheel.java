@@ -0,0 +1,66 @@
+package app.networks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RetransmissionTimerWheel {
+    private final long tickDuration;
+    private final List<ArrayList<OutstandingMessage>> slots;
+    private final long startTime;
+    private long processedTick = 0;
+    private int scheduledMessagesNumber = 0;
+
+    public RetransmissionTimerWheel(long tickDuration, int slotsNumber, long startTime) {
+        this.tickDuration = tickDuration;
+        this.startTime = startTime;
+        this.slots = new ArrayList<>(slotsNumber);
+        for (int i = 0; i < slotsNumber; i++) {
+            slots.add(new ArrayList<>());
+        }
+    }
+
+    public void schedule(OutstandingMessage outstandingMessage) {
+        long deadlineTick = Math.max(getTickByTime(outstandingMessage.getRetransmissionDeadline()), processedTick + 1);
+        slots.get((int) (deadlineTick % slots.size())).add(outstandingMessage);
+        scheduledMessagesNumber++;
+    }
+
+    public List<OutstandingMessage> advanceTo(long currentTime) {
+        List<OutstandingMessage> expiredMessages = new ArrayList<>();
+        long currentTick = getTickByTime(currentTime);
+        long lastTick = Math.min(currentTick, processedTick + slots.size());
+        for (long tick = processedTick + 1; tick <= lastTick && scheduledMessagesNumber > 0; tick++) {
+            var slot = slots.get((int) (tick % slots.size()));
+            int keptMessagesNumber = 0;
+            for (var outstandingMessage : slot) {
+                if (outstandingMessage.isConfirmed()) {
+                    scheduledMessagesNumber--;
+                } else if (getTickByTime(outstandingMessage.getRetransmissionDeadline()) <= currentTick) {
+                    scheduledMessagesNumber--;
+                    expiredMessages.add(outstandingMessage);
+                } else {
+                    slot.set(keptMessagesNumber++, outstandingMessage);
+                }
+            }
+            slot.subList(keptMessagesNumber, slot.size()).clear();
+        }
+        processedTick = Math.max(processedTick, currentTick);
+        return expiredMessages;
+    }
+
+    public long getEarliestDeadline() {
+        long earliestDeadline = Long.MAX_VALUE;
+        for (var slot : slots) {
+            for (var outstandingMessage : slot) {
+                if (!outstandingMessage.isConfirmed()) {
+                    earliestDeadline = Math.min(earliestDeadline, outstandingMessage.getRetransmissionDeadline());
+                }
+            }
+        }
+        return earliestDeadline;
+    }
+
+    private long getTickByTime(long time) {
+        return Math.max(0, (time - startTime + tickDuration - 1) / tickDuration);
+    }
+}
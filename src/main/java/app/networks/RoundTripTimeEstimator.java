@@ -0,0 +1,50 @@
+package app.networks;
+
+import java.util.concurrent.TimeUnit;
+
+public class RoundTripTimeEstimator {
+    private static final double SMOOTHED_RTT_GAIN = 1.0 / 8;
+    private static final double RTT_VARIATION_GAIN = 1.0 / 4;
+    private static final int RTT_VARIATION_FACTOR = 4;
+    private static final long CLOCK_GRANULARITY = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long MIN_RETRANSMISSION_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final long MAX_RETRANSMISSION_TIMEOUT = TimeUnit.SECONDS.toNanos(2);
+
+    private volatile long smoothedRoundTripTime = 0;
+    private volatile long roundTripTimeVariation = 0;
+    private volatile long retransmissionTimeout;
+    private volatile boolean hasMeasurements = false;
+
+    public RoundTripTimeEstimator(long initialRetransmissionTimeout) {
+        this.retransmissionTimeout = initialRetransmissionTimeout;
+    }
+
+    public void addMeasurement(long roundTripTime) {
+        if (!hasMeasurements) {
+            smoothedRoundTripTime = roundTripTime;
+            roundTripTimeVariation = roundTripTime / 2;
+            hasMeasurements = true;
+        } else {
+            roundTripTimeVariation = (long) ((1 - RTT_VARIATION_GAIN) * roundTripTimeVariation +
+                    RTT_VARIATION_GAIN * Math.abs(smoothedRoundTripTime - roundTripTime));
+            smoothedRoundTripTime = (long) ((1 - SMOOTHED_RTT_GAIN) * smoothedRoundTripTime +
+                    SMOOTHED_RTT_GAIN * roundTripTime);
+        }
+        long calculatedTimeout = smoothedRoundTripTime +
+                Math.max(CLOCK_GRANULARITY, RTT_VARIATION_FACTOR * roundTripTimeVariation);
+        retransmissionTimeout = Math.min(Math.max(calculatedTimeout, MIN_RETRANSMISSION_TIMEOUT), MAX_RETRANSMISSION_TIMEOUT);
+    }
+
+    public long getRetransmissionTimeout(int retransmissionsNumber) {
+        long backedOffTimeout = retransmissionTimeout << Math.min(retransmissionsNumber, 16);
+        return Math.min(backedOffTimeout, MAX_RETRANSMISSION_TIMEOUT);
+    }
+
+    public boolean hasMeasurements() {
+        return hasMeasurements;
+    }
+
+    public long getSmoothedRoundTripTime() {
+        return smoothedRoundTripTime;
+    }
+}
@@ -0,0 +1,42 @@
+package app.networks;
+
+import java.util.HashMap;
+import java.util.function.LongSupplier;
+
+public class TimeoutFailureDetector implements FailureDetector {
+    private final LongSupplier timeoutSupplier;
+    private final HashMap<Integer, Long> lastHeartbeatTimesByPlayer = new HashMap<>();
+
+    public TimeoutFailureDetector(LongSupplier timeoutSupplier) {
+        this.timeoutSupplier = timeoutSupplier;
+    }
+
+    @Override
+    public void heartbeat(int playerId, long arrivalTime) {
+        lastHeartbeatTimesByPlayer.put(playerId, arrivalTime);
+    }
+
+    @Override
+    public boolean isSuspected(int playerId, long currentTime) {
+        return getSuspicionLevel(playerId, currentTime) >= 1;
+    }
+
+    @Override
+    public double getSuspicionLevel(int playerId, long currentTime) {
+        Long lastHeartbeatTime = lastHeartbeatTimesByPlayer.get(playerId);
+        if (lastHeartbeatTime == null) {
+            return 0;
+        }
+        return (double) (currentTime - lastHeartbeatTime) / timeoutSupplier.getAsLong();
+    }
+
+    @Override
+    public long getLastHeartbeatTime(int playerId) {
+        return lastHeartbeatTimesByPlayer.getOrDefault(playerId, 0L);
+    }
+
+    @Override
+    public void remove(int playerId) {
+        lastHeartbeatTimesByPlayer.remove(playerId);
+    }
+}
@@ -5,6 +5,13 @@ import lombok.Builder;
 import java.util.Date;
 
 public class DebugPrinter {
+    // Печать каждого отправленного и принятого сообщения включается ключом JVM -Dsnakes.traceMessages=true
+    private static final boolean IS_MESSAGES_TRACING_ENABLED = Boolean.getBoolean("snakes.traceMessages");
+
+    public static boolean isMessagesTracingEnabled() {
+        return IS_MESSAGES_TRACING_ENABLED;
+    }
+
     public static void printWithSpecifiedDateAndName(String ownerName, String message) {
         System.out.println(new Date() + " | " + ownerName + " | " + message);
     }
@@ -1,20 +1,39 @@
 package app.utilities.parser;
 
+import app.networks.DatagramBatcher;
+import app.networks.PhiAccrualFailureDetector;
 import app.utilities.FreePortSearcher;
 import com.github.javafaker.Faker;
 import org.apache.commons.cli.*;
+import proto.SnakesProto;
 
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class CmdArgsParser {
     private static final String DEFAULT_PLAYER_NAME = new Faker().name().firstName();
     private static final String DEFAULT_HOST_ADDRESS = "0.0.0.0";
+    private static final String USAGE_COMMAND = "java app.launcher.GameLauncher";
+    public static final String PHI_ACCRUAL_FAILURE_DETECTOR = "phi";
+    public static final String TIMEOUT_FAILURE_DETECTOR = "timeout";
+    private static final int MIN_FIELD_SIDE = 10;
+    private static final int MAX_FIELD_SIDE = 100;
+    private static final int MAX_INTEREST_FIELD_SIDE = 1000;
+    private static final int MAX_FOOD_AMOUNT = 100;
+    private static final int MAX_DELAY_MS = 10000;
 
     private final Options cmdOptions = new Options();
 
     private String playerName;
     private String hostInetAddress;
     private int hostPort;
+    private long randomSeed;
+    private boolean isHeadless;
+    private String failureDetectorName;
+    private double suspicionThreshold;
+    private int mtu;
+    private boolean isLockstepUsed;
+    private SnakesProto.GameConfig gameConfig;
 
     public CmdArgsParser() {
         OptionSettings playerNameSettings = OptionSettings.builder()
@@ -36,7 +55,75 @@ public class CmdArgsParser {
                 .hasArg(true)
                 .description("Host's network port, through which other players can connect to his game")
                 .build();
-        addAllSettingsToOptions(Arrays.asList(playerNameSettings, hostInetAddressSettings, hostPortSettings));
+        OptionSettings randomSeedSettings = OptionSettings.builder()
+                .opt("s")
+                .longOpt("randomSeed")
+                .hasArg(true)
+                .description("Seed of the session random generator, allows to replay games launched by this host")
+                .build();
+        OptionSettings headlessSettings = OptionSettings.builder()
+                .opt("H")
+                .longOpt("headless")
+                .hasArg(false)
+                .description("Run a dedicated master without graphical interface, " +
+                        "the game is created from the game options below")
+                .build();
+        OptionSettings failureDetectorSettings = OptionSettings.builder()
+                .opt("D")
+                .longOpt("failureDetector")
+                .hasArg(true)
+                .description("How a silent master is detected: \"" + PHI_ACCRUAL_FAILURE_DETECTOR +
+                        "\" (default) by the phi accrual suspicion level, \"" + TIMEOUT_FAILURE_DETECTOR +
+                        "\" by the node_timeout_ms of the game")
+                .build();
+        OptionSettings suspicionThresholdSettings = OptionSettings.builder()
+                .opt("T")
+                .longOpt("suspicionThreshold")
+                .hasArg(true)
+                .description("Phi accrual suspicion level after which a silent master is considered failed " +
+                        "and the deputy takes its place")
+                .build();
+        OptionSettings mtuSettings = OptionSettings.builder()
+                .opt("m")
+                .longOpt("mtu")
+                .hasArg(true)
+                .description("Maximum size of a sent packet in bytes (from " + DatagramBatcher.MIN_MTU + " to " +
+                        DatagramBatcher.MAX_MTU + "), messages to one player are batched up to it")
+                .build();
+        OptionSettings lockstepSettings = OptionSettings.builder()
+                .opt("L")
+                .longOpt("lockstep")
+                .hasArg(false)
+                .description("Send players only inputs and random seed of each game step while they keep up, " +
+                        "full game state is sent only to resynchronize them")
+                .build();
+        addAllSettingsToOptions(Arrays.asList(playerNameSettings, hostInetAddressSettings, hostPortSettings,
+                randomSeedSettings, headlessSettings, failureDetectorSettings, suspicionThresholdSettings, mtuSettings,
+                lockstepSettings));
+        addAllSettingsToOptions(getGameConfigSettings());
+    }
+
+    private List<OptionSettings> getGameConfigSettings() {
+        return Arrays.asList(
+                buildGameConfigSettings("x", "width", "Width of the game field in cells"),
+                buildGameConfigSettings("y", "height", "Height of the game field in cells"),
+                buildGameConfigSettings("f", "foodStatic", "Amount of food that is always on the field"),
+                buildGameConfigSettings("F", "foodPerPlayer", "Amount of food added for each alive snake"),
+                buildGameConfigSettings("d", "stateDelay", "Delay between game steps in milliseconds"),
+                buildGameConfigSettings("P", "deadFoodProb", "Probability of turning a dead snake cell into food"),
+                buildGameConfigSettings("i", "pingDelay", "Delay between pings in milliseconds"),
+                buildGameConfigSettings("t", "nodeTimeout", "Timeout after which a silent player is disconnected"),
+                buildGameConfigSettings("c", "interestChunkSize", "Side of a field chunk in cells, players get " +
+                        "full details only of the chunks around their snake head (0 sends the whole field)"));
+    }
+
+    private OptionSettings buildGameConfigSettings(String opt, String longOpt, String description) {
+        return OptionSettings.builder()
+                .opt(opt)
+                .longOpt(longOpt)
+                .hasArg(true)
+                .description(description + " (headless mode only)")
+                .build();
     }
 
     private void addAllSettingsToOptions(List<OptionSettings> optionSettings) {
@@ -67,6 +154,94 @@ public class CmdArgsParser {
         } catch (Exception e) {
             hostPort = FreePortSearcher.getRandomFreePort();
         }
+
+        try {
+            randomSeed = Long.parseLong(commandLine.getOptionValue("s"));
+        } catch (Exception e) {
+            randomSeed = ThreadLocalRandom.current().nextLong();
+        }
+
+        isHeadless = commandLine.hasOption("H");
+
+        failureDetectorName = commandLine.getOptionValue("D", PHI_ACCRUAL_FAILURE_DETECTOR);
+        if (!failureDetectorName.equals(PHI_ACCRUAL_FAILURE_DETECTOR) &&
+                !failureDetectorName.equals(TIMEOUT_FAILURE_DETECTOR)) {
+            throw new ParseException("Option -D expects " + PHI_ACCRUAL_FAILURE_DETECTOR + " or " +
+                    TIMEOUT_FAILURE_DETECTOR + ", got " + failureDetectorName);
+        }
+
+        try {
+            suspicionThreshold = Double.parseDouble(commandLine.getOptionValue("T"));
+        } catch (Exception e) {
+            suspicionThreshold = PhiAccrualFailureDetector.DEFAULT_THRESHOLD;
+        }
+
+        mtu = parseIntegerOption(commandLine, "m", DatagramBatcher.DEFAULT_MTU,
+                DatagramBatcher.MIN_MTU, DatagramBatcher.MAX_MTU);
+        isLockstepUsed = commandLine.hasOption("L");
+        gameConfig = parseGameConfig(commandLine);
+    }
+
+    private SnakesProto.GameConfig parseGameConfig(CommandLine commandLine) throws ParseException {
+        var defaultConfig = SnakesProto.GameConfig.getDefaultInstance();
+        int interestChunkSize = parseIntegerOption(commandLine, "c", defaultConfig.getInterestChunkSize());
+        checkOptionRange("c", interestChunkSize, 0, MAX_FIELD_SIDE);
+        // Поля больше 100x100 допустимы только в режиме области интереса
+        int maxFieldSide = (interestChunkSize > 0) ? MAX_INTEREST_FIELD_SIDE : MAX_FIELD_SIDE;
+        return SnakesProto.GameConfig.newBuilder()
+                .setWidth(parseIntegerOption(commandLine, "x", defaultConfig.getWidth(), MIN_FIELD_SIDE, maxFieldSide))
+                .setHeight(parseIntegerOption(commandLine, "y", defaultConfig.getHeight(), MIN_FIELD_SIDE, maxFieldSide))
+                .setFoodStatic(parseIntegerOption(commandLine, "f", defaultConfig.getFoodStatic(), 0, MAX_FOOD_AMOUNT))
+                .setFoodPerPlayer(parseFloatOption(commandLine, "F", defaultConfig.getFoodPerPlayer(), 0, MAX_FOOD_AMOUNT))
+                .setStateDelayMs(parseIntegerOption(commandLine, "d", defaultConfig.getStateDelayMs(), 1, MAX_DELAY_MS))
+                .setDeadFoodProb(parseFloatOption(commandLine, "P", defaultConfig.getDeadFoodProb(), 0, 1))
+                .setPingDelayMs(parseIntegerOption(commandLine, "i", defaultConfig.getPingDelayMs(), 1, MAX_DELAY_MS))
+                .setNodeTimeoutMs(parseIntegerOption(commandLine, "t", defaultConfig.getNodeTimeoutMs(), 1, MAX_DELAY_MS))
+                .setInterestChunkSize(interestChunkSize)
+                .build();
+    }
+
+    private int parseIntegerOption(CommandLine commandLine, String opt, int defaultValue) throws ParseException {
+        if (!commandLine.hasOption(opt)) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(commandLine.getOptionValue(opt));
+        } catch (NumberFormatException e) {
+            throw new ParseException("Option -" + opt + " expects an integer, got " + commandLine.getOptionValue(opt));
+        }
+    }
+
+    private int parseIntegerOption(CommandLine commandLine, String opt, int defaultValue,
+                                   int minValue, int maxValue) throws ParseException {
+        int value = parseIntegerOption(commandLine, opt, defaultValue);
+        checkOptionRange(opt, value, minValue, maxValue);
+        return value;
+    }
+
+    private float parseFloatOption(CommandLine commandLine, String opt, float defaultValue,
+                                   float minValue, float maxValue) throws ParseException {
+        float value = defaultValue;
+        if (commandLine.hasOption(opt)) {
+            try {
+                value = Float.parseFloat(commandLine.getOptionValue(opt));
+            } catch (NumberFormatException e) {
+                throw new ParseException("Option -" + opt + " expects a number, got " + commandLine.getOptionValue(opt));
+            }
+        }
+        checkOptionRange(opt, value, minValue, maxValue);
+        return value;
+    }
+
+    private void checkOptionRange(String opt, Number value, Number minValue, Number maxValue) throws ParseException {
+        if (!(value.doubleValue() >= minValue.doubleValue() && value.doubleValue() <= maxValue.doubleValue())) {
+            throw new ParseException("Option -" + opt + " must be between " + minValue + " and " + maxValue +
+                    ", got " + value);
+        }
+    }
+
+    public void printUsage() {
+        new HelpFormatter().printHelp(USAGE_COMMAND, cmdOptions);
     }
 
     public String getPlayerName() {
@@ -81,6 +256,34 @@ public class CmdArgsParser {
         return hostPort;
     }
 
+    public long getRandomSeed() {
+        return randomSeed;
+    }
+
+    public boolean isHeadless() {
+        return isHeadless;
+    }
+
+    public String getFailureDetectorName() {
+        return failureDetectorName;
+    }
+
+    public double getSuspicionThreshold() {
+        return suspicionThreshold;
+    }
+
+    public int getMtu() {
+        return mtu;
+    }
+
+    public boolean isLockstepUsed() {
+        return isLockstepUsed;
+    }
+
+    public SnakesProto.GameConfig getGameConfig() {
+        return gameConfig;
+    }
+
     @Override
     public String toString() {
         return "CmdArgsParser{" +
@@ -88,6 +291,13 @@ public class CmdArgsParser {
                 ", playerName='" + playerName + '\'' +
                 ", hostInetAddress='" + hostInetAddress + '\'' +
                 ", hostPort=" + hostPort +
+                ", randomSeed=" + randomSeed +
+                ", isHeadless=" + isHeadless +
+                ", failureDetectorName='" + failureDetectorName + '\'' +
+                ", suspicionThreshold=" + suspicionThreshold +
+                ", mtu=" + mtu +
+                ", isLockstepUsed=" + isLockstepUsed +
+                ", gameConfig=" + gameConfig +
                 '}';
     }
 }
@@ -7,8 +7,14 @@ import proto.SnakesProto;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.KeyEvent;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class GameField extends JPanel {
+    private static final int FRAME_PERIOD_IN_MILLIS = 16;
+
     private int fieldWidth;
     private int fieldHeight;
     private int widthRectScale;
@@ -31,6 +37,7 @@ public class GameField extends JPanel {
         this.setBorder(BorderFactory.createLineBorder(Color.BLACK));
         this.addUserStepsKeyDispatcher(gameController);
         this.setVisible(true);
+        new Timer(FRAME_PERIOD_IN_MILLIS, event -> this.repaint()).start();
     }
 
     private void addUserStepsKeyDispatcher(GameController gameController) {
@@ -56,20 +63,22 @@ public class GameField extends JPanel {
 
     @Override
     public void paint(Graphics g) {
+        var gameState = gameModel.getGameState();
         int lastWidth = fieldWidth;
         int lastHeight = fieldHeight;
-        fieldWidth = gameModel.getGameState().getConfig().getWidth();
-        fieldHeight = gameModel.getGameState().getConfig().getHeight();
+        fieldWidth = gameState.getConfig().getWidth();
+        fieldHeight = gameState.getConfig().getHeight();
         widthRectScale = (int) Math.floor((float) lastWidth * widthRectScale / fieldWidth);
         heightRectScale = (int) Math.floor((float) lastHeight * heightRectScale / fieldHeight);
-        paintGameField(g);
+        paintGameField(g, gameState);
     }
 
-    private void paintGameField(Graphics graphics) {
+    private void paintGameField(Graphics graphics, SnakesProto.GameState gameState) {
         paintBackground(graphics);
+        paintChunkSummaries(graphics, gameState);
         paintDelimiterLines(graphics);
-        paintAllSnakes(graphics);
-        paintFoods(graphics);
+        paintAllSnakes(graphics, gameState);
+        paintFoods(graphics, gameState);
     }
 
     private void paintBackground(Graphics graphics) {
@@ -77,31 +86,91 @@ public class GameField extends JPanel {
         graphics.fillRect(0, 0, this.getWidth(), this.getHeight());
     }
 
-    private void paintAllSnakes(Graphics graphics) {
-        for (var snake : gameModel.getGameState().getSnakesList()) {
-            paintSnake(snake, graphics);
+    private void paintChunkSummaries(Graphics graphics, SnakesProto.GameState gameState) {
+        int chunkSize = gameState.getConfig().getInterestChunkSize();
+        for (var chunkSummary : gameState.getChunkSummariesList()) {
+            graphics.setColor((chunkSummary.getSnakeCells() > 0) ? Color.DARK_GRAY : Color.PINK);
+            graphics.fillRect(chunkSummary.getChunkX() * chunkSize * widthRectScale,
+                    chunkSummary.getChunkY() * chunkSize * heightRectScale,
+                    chunkSize * widthRectScale, chunkSize * heightRectScale);
         }
     }
 
-    private void paintSnake(SnakesProto.GameState.Snake snake, Graphics graphics) {
-        var snakeAllCoordinates = gameModel.getSnakeAllCoordinates(snake);
-        for (var coordinate : snakeAllCoordinates) {
-            if (snake.getPlayerId() == ownerFieldId) {
-                graphics.setColor(Color.ORANGE);
-            } else {
-                graphics.setColor(Color.CYAN);
+    // Своя живая змея рисуется к предсказанному следующему шагу, чужие - от предыдущего состояния
+    private void paintAllSnakes(Graphics graphics, SnakesProto.GameState gameState) {
+        double stepProgress = getStepProgress(gameState);
+        Map<Integer, SnakesProto.GameState.Snake> previousSnakesByPlayer = new HashMap<>();
+        var previousGameState = gameModel.getPreviousGameState();
+        if (previousGameState != null && previousGameState.getStateOrder() + 1 == gameState.getStateOrder()) {
+            for (var previousSnake : previousGameState.getSnakesList()) {
+                previousSnakesByPlayer.put(previousSnake.getPlayerId(), previousSnake);
             }
-            if (snake.getPlayerId() == ownerFieldId && coordinate.equals(snakeAllCoordinates.getFirst())) {
-                graphics.setColor(Color.YELLOW);
+        }
+        for (var snake : gameState.getSnakesList()) {
+            var snakeAllCoordinates = gameModel.getSnakeAllCoordinates(snake, gameState.getConfig());
+            var fromCoordinates = snakeAllCoordinates;
+            var toCoordinates = snakeAllCoordinates;
+            var previousSnake = previousSnakesByPlayer.get(snake.getPlayerId());
+            if (snake.getPlayerId() == ownerFieldId &&
+                    snake.getState().equals(SnakesProto.GameState.Snake.SnakeState.ALIVE)) {
+                toCoordinates = gameModel.getPredictedSnakeCoordinates(snake, gameState);
+            } else if (previousSnake != null) {
+                fromCoordinates = gameModel.getSnakeAllCoordinates(previousSnake, gameState.getConfig());
             }
-            graphics.fillRect(coordinate.getX() * widthRectScale,
-                    coordinate.getY() * heightRectScale,
-                    widthRectScale, heightRectScale);
+            paintSnake(snake.getPlayerId(), fromCoordinates, toCoordinates, stepProgress, graphics);
+        }
+    }
+
+    private double getStepProgress(SnakesProto.GameState gameState) {
+        long stateDelay = TimeUnit.MILLISECONDS.toNanos(gameState.getConfig().getStateDelayMs());
+        long sinceStateChange = System.nanoTime() - gameModel.getGameStateChangeTime();
+        return Math.min(1.0, (double) sinceStateChange / Math.max(stateDelay, 1));
+    }
+
+    private void paintSnake(int playerId, LinkedList<SnakesProto.GameState.Coord> fromCoordinates,
+                            LinkedList<SnakesProto.GameState.Coord> toCoordinates,
+                            double stepProgress, Graphics graphics) {
+        if (playerId == ownerFieldId) {
+            graphics.setColor(Color.ORANGE);
+        } else {
+            graphics.setColor(Color.CYAN);
         }
+        boolean isFirstCoordinate = true;
+        for (var coordinate : toCoordinates) {
+            if (!isFirstCoordinate) {
+                paintCell(graphics, coordinate.getX(), coordinate.getY());
+            }
+            isFirstCoordinate = false;
+        }
+        if (fromCoordinates.size() == toCoordinates.size()) {
+            paintMovingCell(graphics, fromCoordinates.getLast(), toCoordinates.getLast(), stepProgress);
+        }
+        if (playerId == ownerFieldId) {
+            graphics.setColor(Color.YELLOW);
+        }
+        paintMovingCell(graphics, fromCoordinates.getFirst(), toCoordinates.getFirst(), stepProgress);
+    }
+
+    // Клетка плавно сдвигается только к соседней клетке; переход через край поля рисуется сразу
+    private void paintMovingCell(Graphics graphics, SnakesProto.GameState.Coord fromCoordinate,
+                                 SnakesProto.GameState.Coord toCoordinate, double stepProgress) {
+        int xOffset = toCoordinate.getX() - fromCoordinate.getX();
+        int yOffset = toCoordinate.getY() - fromCoordinate.getY();
+        if (Math.abs(xOffset) + Math.abs(yOffset) != 1) {
+            paintCell(graphics, toCoordinate.getX(), toCoordinate.getY());
+            return;
+        }
+        graphics.fillRect((int) Math.round((fromCoordinate.getX() + xOffset * stepProgress) * widthRectScale),
+                (int) Math.round((fromCoordinate.getY() + yOffset * stepProgress) * heightRectScale),
+                widthRectScale, heightRectScale);
+    }
+
+    private void paintCell(Graphics graphics, int x, int y) {
+        graphics.fillRect(x * widthRectScale, y * heightRectScale, widthRectScale, heightRectScale);
     }
 
-    private void paintFoods(Graphics graphics) {
-        for (var foodCoordinate : gameModel.getGameState().getFoodsList()) {
+    private void paintFoods(Graphics graphics, SnakesProto.GameState gameState) {
+        for (var foodCoordinate : gameState.getFoodsList()) {
             graphics.setColor(Color.RED);
             graphics.fillRect(foodCoordinate.getX() * widthRectScale,
                     foodCoordinate.getY() * heightRectScale,
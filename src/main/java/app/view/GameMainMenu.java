@@ -92,10 +92,12 @@ public class GameMainMenu extends JPanel {
         for (var player : gameModel.getGameState().getPlayers().getPlayersList()) {
             JLabel playerInfoLabel = new JLabel();
             playerInfoLabel.setFont(UPDATING_INFOS_FONT);
-            if (gameModel.getSnakesAllCoordinatesByPlayer().containsKey(player.getId())) {
-                int realScore = gameModel.getSnakesAllCoordinatesByPlayer().get(player.getId()).size() - 2;
+            int snakeLength = gameModel.getPlayerSnakeLength(player.getId());
+            if (snakeLength > 0) {
+                int realScore = snakeLength - 2;
                 playerInfoLabel.setText("Player {" + player.getName() + "} with ID {" + player.getId() + "} " +
-                        "has score: " + realScore + " {" + player.getRole() + "}");
+                        "has score: " + realScore + " {" + player.getRole() + "}" +
+                        getRoundTripTimeInfo(player.getId()));
             } else {
                 playerInfoLabel.setText("Player {" + player.getName() + "} with ID {" + player.getId() + "} has score: 0" +
                         " {VIEWER}");
@@ -105,6 +107,14 @@ public class GameMainMenu extends JPanel {
         this.validate();
     }
 
+    private String getRoundTripTimeInfo(int playerId) {
+        long roundTripTimeMs = gameController.getPlayerRoundTripTimeMs(playerId);
+        if (roundTripTimeMs == GameController.UNKNOWN_ROUND_TRIP_TIME) {
+            return "";
+        }
+        return " RTT: " + roundTripTimeMs + " ms";
+    }
+
     public void printAvailableGames(ConcurrentHashMap<CommunicationMessage, Instant> availableGames) {
         var sortedAvailableGames = availableGames.entrySet().stream().sorted(
                 Comparator.comparing(game -> Objects.requireNonNull(
@@ -0,0 +1,67 @@
+package app.model;
+
+import org.junit.jupiter.api.Test;
+import proto.SnakesProto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameModelTest {
+    private static final int MASTER_ID = 1;
+    private static final int PLAYER_ID = 2;
+    private static final int WARM_UP_STEPS_NUMBER = 40;
+    private static final int DELTA_BASE_DISTANCE = 5;
+    private static final int LOCKSTEP_TICKS_NUMBER = 20;
+
+    @Test
+    void lockstepTickGivesSameStateAfterFullAndDeltaLoad() {
+        var masterModel = new GameModel(42L);
+        masterModel.launchNewGameAsMaster(makeGameConfig(), "master", MASTER_ID, 9192, true);
+        masterModel.addNewPlayerToModel(makePlayer(PLAYER_ID));
+        for (int i = 0; i < WARM_UP_STEPS_NUMBER; i++) {
+            masterModel.makeGameNextStep();
+        }
+        var keyState = masterModel.getGameState();
+        var baseState = masterModel.getRememberedGameState(keyState.getStateOrder() - DELTA_BASE_DISTANCE);
+        masterModel.rebaseWorkingState();
+
+        var fullStateModel = new GameModel(7L);
+        fullStateModel.setGameState(keyState);
+        fullStateModel.applyPendingCommands();
+        var deltaStateModel = new GameModel(7L);
+        deltaStateModel.setGameState(GameStateDeltas.applyDelta(baseState,
+                GameStateDeltas.makeDelta(baseState, keyState)));
+        deltaStateModel.applyPendingCommands();
+
+        for (int i = 0; i < LOCKSTEP_TICKS_NUMBER; i++) {
+            int baseStateOrder = masterModel.getGameState().getStateOrder();
+            masterModel.makeGameNextStep();
+            var tickInputs = masterModel.getLastTickInputs();
+            assertTrue(fullStateModel.applyLockstepTick(baseStateOrder, tickInputs, i == 0));
+            assertTrue(deltaStateModel.applyLockstepTick(baseStateOrder, tickInputs, i == 0));
+            assertEquals(masterModel.getGameState(), fullStateModel.getGameState());
+            assertEquals(masterModel.getGameState(), deltaStateModel.getGameState());
+            assertEquals(LockstepTicks.hashGameState(masterModel.getGameState()),
+                    LockstepTicks.hashGameState(deltaStateModel.getGameState()));
+        }
+    }
+
+    private static SnakesProto.GameConfig makeGameConfig() {
+        return SnakesProto.GameConfig.newBuilder()
+                .setWidth(30)
+                .setHeight(30)
+                .setFoodStatic(100)
+                .build();
+    }
+
+    private static SnakesProto.GamePlayer makePlayer(int playerId) {
+        return SnakesProto.GamePlayer.newBuilder()
+                .setId(playerId)
+                .setName("player" + playerId)
+                .setIpAddress("")
+                .setPort(9192 + playerId)
+                .setRole(SnakesProto.NodeRole.NORMAL)
+                .setScore(0)
+                .build();
+    }
+}
@@ -0,0 +1,120 @@
+package app.model;
+
+import org.junit.jupiter.api.Test;
+import proto.SnakesProto;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameStateDeltasTest {
+    private static final int MASTER_ID = 1;
+    private static final int PLAYER_ID = 2;
+    private static final int GAME_STEPS_NUMBER = 60;
+    private static final int MAX_DELTA_BASE_DISTANCE = 10;
+
+    @Test
+    void appliedDeltaRestoresActualState() {
+        var gameModel = new GameModel(42L);
+        gameModel.launchNewGameAsMaster(makeGameConfig(), "master", MASTER_ID, 9192, true);
+        for (int i = 0; i < GAME_STEPS_NUMBER; i++) {
+            if (i == GAME_STEPS_NUMBER / 2) {
+                gameModel.addNewPlayerToModel(makePlayer(PLAYER_ID));
+            }
+            gameModel.makeGameNextStep();
+        }
+        var actualState = gameModel.getGameState();
+        for (int distance = 1; distance <= MAX_DELTA_BASE_DISTANCE; distance++) {
+            var baseState = gameModel.getRememberedGameState(actualState.getStateOrder() - distance);
+            assertEquals(actualState, GameStateDeltas.applyDelta(baseState,
+                    GameStateDeltas.makeDelta(baseState, actualState)));
+        }
+    }
+
+    @Test
+    void deltaCarriesOnlyChangedParts() {
+        var baseState = makeGameState(1)
+                .addSnakes(makeSnake(MASTER_ID, 3))
+                .addSnakes(makeSnake(PLAYER_ID, 5))
+                .addFoods(makeCoordinate(1, 1))
+                .addFoods(makeCoordinate(2, 1))
+                .setPlayers(SnakesProto.GamePlayers.newBuilder()
+                        .addPlayers(makePlayer(MASTER_ID))
+                        .addPlayers(makePlayer(PLAYER_ID)))
+                .build();
+        var actualState = makeGameState(2)
+                .addSnakes(makeSnake(MASTER_ID, 4))
+                .addFoods(makeCoordinate(0, 0))
+                .addFoods(makeCoordinate(2, 1))
+                .setPlayers(SnakesProto.GamePlayers.newBuilder()
+                        .addPlayers(makePlayer(MASTER_ID)))
+                .build();
+
+        var stateDelta = GameStateDeltas.makeDelta(baseState, actualState);
+        assertEquals(1, stateDelta.getBaseStateOrder());
+        assertEquals(2, stateDelta.getStateOrder());
+        assertEquals(1, stateDelta.getChangedSnakesCount());
+        assertEquals(List.of(PLAYER_ID), stateDelta.getRemovedSnakesList());
+        assertEquals(List.of(makeCoordinate(0, 0)), stateDelta.getAddedFoodsList());
+        assertEquals(List.of(makeCoordinate(1, 1)), stateDelta.getRemovedFoodsList());
+        assertTrue(stateDelta.getChangedPlayersList().isEmpty());
+        assertEquals(List.of(PLAYER_ID), stateDelta.getRemovedPlayersList());
+        assertEquals(actualState, GameStateDeltas.applyDelta(baseState, stateDelta));
+    }
+
+    @Test
+    void appliedDeltaOrdersFoodsByCells() {
+        var baseState = makeGameState(1)
+                .addFoods(makeCoordinate(5, 2))
+                .setPlayers(SnakesProto.GamePlayers.newBuilder())
+                .build();
+        var actualState = makeGameState(2)
+                .addFoods(makeCoordinate(3, 0))
+                .addFoods(makeCoordinate(5, 2))
+                .addFoods(makeCoordinate(0, 3))
+                .setPlayers(SnakesProto.GamePlayers.newBuilder())
+                .build();
+        assertEquals(actualState, GameStateDeltas.applyDelta(baseState,
+                GameStateDeltas.makeDelta(baseState, actualState)));
+    }
+
+    private static SnakesProto.GameState.Builder makeGameState(int stateOrder) {
+        return SnakesProto.GameState.newBuilder()
+                .setStateOrder(stateOrder)
+                .setConfig(makeGameConfig());
+    }
+
+    private static SnakesProto.GameState.Snake makeSnake(int playerId, int headX) {
+        return SnakesProto.GameState.Snake.newBuilder()
+                .setPlayerId(playerId)
+                .addPoints(makeCoordinate(headX, 4))
+                .addPoints(makeCoordinate(-1, 0))
+                .setState(SnakesProto.GameState.Snake.SnakeState.ALIVE)
+                .setHeadDirection(SnakesProto.Direction.RIGHT)
+                .build();
+    }
+
+    private static SnakesProto.GameState.Coord makeCoordinate(int x, int y) {
+        return SnakesProto.GameState.Coord.newBuilder().setX(x).setY(y).build();
+    }
+
+    private static SnakesProto.GameConfig makeGameConfig() {
+        return SnakesProto.GameConfig.newBuilder()
+                .setWidth(30)
+                .setHeight(30)
+                .setFoodStatic(20)
+                .build();
+    }
+
+    private static SnakesProto.GamePlayer makePlayer(int playerId) {
+        return SnakesProto.GamePlayer.newBuilder()
+                .setId(playerId)
+                .setName("player" + playerId)
+                .setIpAddress("")
+                .setPort(9192 + playerId)
+                .setRole(SnakesProto.NodeRole.NORMAL)
+                .setScore(0)
+                .build();
+    }
+}
@@ -0,0 +1,77 @@
+package app.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndexedCellsSetTest {
+    private static final int CELLS_NUMBER = 16;
+
+    @Test
+    void filledSetContainsAllCells() {
+        var cellsSet = new IndexedCellsSet(CELLS_NUMBER);
+        cellsSet.fill();
+        assertEquals(CELLS_NUMBER, cellsSet.size());
+        for (int cell = 0; cell < CELLS_NUMBER; cell++) {
+            assertTrue(cellsSet.contains(cell));
+            assertEquals(cell, cellsSet.get(cell));
+        }
+    }
+
+    @Test
+    void removalMovesLastCellIntoFreedPosition() {
+        var cellsSet = new IndexedCellsSet(CELLS_NUMBER);
+        cellsSet.fill();
+        cellsSet.remove(3);
+        cellsSet.remove(3);
+        assertEquals(CELLS_NUMBER - 1, cellsSet.size());
+        assertFalse(cellsSet.contains(3));
+        assertEquals(CELLS_NUMBER - 1, cellsSet.get(3));
+        assertEquals(Set.of(3), getMissingCells(cellsSet));
+    }
+
+    @Test
+    void addsCellsOnceAfterClear() {
+        var cellsSet = new IndexedCellsSet(CELLS_NUMBER);
+        cellsSet.fill();
+        cellsSet.clear();
+        assertEquals(0, cellsSet.size());
+        assertFalse(cellsSet.contains(0));
+        cellsSet.add(7);
+        cellsSet.add(2);
+        cellsSet.add(7);
+        assertEquals(2, cellsSet.size());
+        assertEquals(7, cellsSet.get(0));
+        assertEquals(2, cellsSet.get(1));
+        cellsSet.remove(7);
+        assertEquals(1, cellsSet.size());
+        assertEquals(2, cellsSet.get(0));
+        assertTrue(cellsSet.contains(2));
+        assertFalse(cellsSet.contains(7));
+    }
+
+    @Test
+    void rejectsPositionOutOfSet() {
+        var cellsSet = new IndexedCellsSet(CELLS_NUMBER);
+        cellsSet.add(5);
+        assertThrows(IndexOutOfBoundsException.class, () -> cellsSet.get(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> cellsSet.get(-1));
+    }
+
+    private static Set<Integer> getMissingCells(IndexedCellsSet cellsSet) {
+        Set<Integer> missingCells = new HashSet<>();
+        for (int cell = 0; cell < CELLS_NUMBER; cell++) {
+            missingCells.add(cell);
+        }
+        for (int position = 0; position < cellsSet.size(); position++) {
+            missingCells.remove(cellsSet.get(position));
+        }
+        return missingCells;
+    }
+}
@@ -0,0 +1,57 @@
+package app.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntRingBufferTest {
+    private static final int VALUES_NUMBER = 40;
+
+    @Test
+    void keepsOrderWhenWrappingAroundAndGrowing() {
+        var ringBuffer = new IntRingBuffer();
+        for (int i = 0; i < VALUES_NUMBER; i++) {
+            if (i % 2 == 0) {
+                ringBuffer.addFirst(-i);
+            } else {
+                ringBuffer.addLast(i);
+            }
+        }
+        assertEquals(VALUES_NUMBER, ringBuffer.size());
+        assertEquals(-(VALUES_NUMBER - 2), ringBuffer.getFirst());
+        assertEquals(VALUES_NUMBER - 1, ringBuffer.getLast());
+        for (int i = 1; i < VALUES_NUMBER; i++) {
+            assertTrue(ringBuffer.get(i - 1) < ringBuffer.get(i));
+        }
+    }
+
+    @Test
+    void setsAndRemovesValuesAcrossBufferEdge() {
+        var ringBuffer = new IntRingBuffer();
+        ringBuffer.addLast(1);
+        ringBuffer.addFirst(0);
+        ringBuffer.addLast(2);
+        ringBuffer.set(0, 10);
+        assertEquals(10, ringBuffer.getFirst());
+        assertEquals(2, ringBuffer.removeLast());
+        assertEquals(1, ringBuffer.removeLast());
+        assertEquals(1, ringBuffer.size());
+        assertEquals(10, ringBuffer.getLast());
+    }
+
+    @Test
+    void rejectsAccessOutOfBuffer() {
+        var ringBuffer = new IntRingBuffer();
+        assertThrows(NoSuchElementException.class, ringBuffer::getFirst);
+        assertThrows(NoSuchElementException.class, ringBuffer::removeLast);
+        ringBuffer.addLast(1);
+        assertThrows(IndexOutOfBoundsException.class, () -> ringBuffer.get(1));
+        ringBuffer.clear();
+        assertTrue(ringBuffer.isEmpty());
+        assertThrows(IndexOutOfBoundsException.class, () -> ringBuffer.set(0, 1));
+    }
+}
@@ -0,0 +1,59 @@
+package app.model;
+
+import org.junit.jupiter.api.Test;
+import proto.SnakesProto;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SnakeKeyPointsTest {
+    @Test
+    void straightMoveExtendsFirstOffset() {
+        var snakeKeyPoints = SnakeKeyPoints.fromSnake(makeSnake(List.of(makeCoordinate(5, 5), makeCoordinate(-2, 0))));
+        snakeKeyPoints.moveHead(6, 5, 1, 0);
+        assertEquals(List.of(makeCoordinate(6, 5), makeCoordinate(-3, 0)), getPoints(snakeKeyPoints));
+        snakeKeyPoints.shrinkTail();
+        assertEquals(List.of(makeCoordinate(6, 5), makeCoordinate(-2, 0)), getPoints(snakeKeyPoints));
+    }
+
+    @Test
+    void turnAddsKeyPointAndTailDropsIt() {
+        var snakeKeyPoints = SnakeKeyPoints.fromSnake(makeSnake(List.of(makeCoordinate(5, 5), makeCoordinate(-2, 0))));
+        snakeKeyPoints.moveHead(5, 4, 0, -1);
+        assertEquals(List.of(makeCoordinate(5, 4), makeCoordinate(0, 1), makeCoordinate(-2, 0)),
+                getPoints(snakeKeyPoints));
+        snakeKeyPoints.shrinkTail();
+        snakeKeyPoints.shrinkTail();
+        assertEquals(List.of(makeCoordinate(5, 4), makeCoordinate(0, 1)), getPoints(snakeKeyPoints));
+    }
+
+    @Test
+    void singleCellSnakeKeepsOnlyHead() {
+        var snakeKeyPoints = SnakeKeyPoints.fromSnake(makeSnake(List.of(makeCoordinate(0, 0))));
+        snakeKeyPoints.moveHead(1, 0, 1, 0);
+        snakeKeyPoints.shrinkTail();
+        assertEquals(List.of(makeCoordinate(1, 0)), getPoints(snakeKeyPoints));
+        snakeKeyPoints.shrinkTail();
+        assertEquals(List.of(makeCoordinate(1, 0)), getPoints(snakeKeyPoints));
+    }
+
+    private static List<SnakesProto.GameState.Coord> getPoints(SnakeKeyPoints snakeKeyPoints) {
+        var snakeBuilder = SnakesProto.GameState.Snake.newBuilder();
+        snakeKeyPoints.writePointsTo(snakeBuilder);
+        return snakeBuilder.getPointsList();
+    }
+
+    private static SnakesProto.GameState.Snake makeSnake(List<SnakesProto.GameState.Coord> points) {
+        return SnakesProto.GameState.Snake.newBuilder()
+                .setPlayerId(1)
+                .addAllPoints(points)
+                .setState(SnakesProto.GameState.Snake.SnakeState.ALIVE)
+                .setHeadDirection(SnakesProto.Direction.RIGHT)
+                .build();
+    }
+
+    private static SnakesProto.GameState.Coord makeCoordinate(int x, int y) {
+        return SnakesProto.GameState.Coord.newBuilder().setX(x).setY(y).build();
+    }
+}
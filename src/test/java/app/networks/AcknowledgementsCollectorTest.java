@@ -0,0 +1,88 @@
+package app.networks;
+
+import org.junit.jupiter.api.Test;
+import proto.SnakesProto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AcknowledgementsCollectorTest {
+    private static final SnakesProto.GamePlayer MY_PLAYER = makePlayer(1);
+    private static final SnakesProto.GamePlayer SENDER_PLAYER = makePlayer(2);
+
+    @Test
+    void collapsesConsecutiveMsgSeqsIntoRanges() {
+        var collector = new AcknowledgementsCollector();
+        for (long msgSeq : new long[]{8, 1, 2, 3, 5, 7, 2}) {
+            collector.add(SENDER_PLAYER, msgSeq, TimeUnit.MILLISECONDS.toNanos(msgSeq));
+        }
+        assertEquals(List.of(SENDER_PLAYER.getId()), collector.getPendingPlayerIds());
+
+        var ackMessages = collector.pollAckMessages(SENDER_PLAYER.getId(), MY_PLAYER, TimeUnit.MILLISECONDS.toNanos(20));
+        assertTrue(collector.isEmpty());
+        assertEquals(1, ackMessages.size());
+        var ackMessage = ackMessages.get(0).getMessage();
+        assertEquals(List.of(makeAckRange(1, 3), makeAckRange(5, 5), makeAckRange(7, 8)),
+                ackMessage.getAck().getRangesList());
+        assertEquals(8, ackMessage.getMsgSeq());
+        assertEquals(12, ackMessage.getAck().getAckDelayMs());
+        assertEquals(SENDER_PLAYER, ackMessages.get(0).getReceiverPlayer());
+        assertEquals(List.of(8L, 1L, 2L, 3L, 5L, 7L), AcknowledgementsCollector.getAckedMsgSeqs(ackMessage));
+    }
+
+    @Test
+    void splitsManyRangesIntoSeveralMessages() {
+        var collector = new AcknowledgementsCollector();
+        for (long msgSeq = 0; msgSeq < 100; msgSeq += 2) {
+            collector.add(SENDER_PLAYER, msgSeq, 0);
+        }
+        var ackMessages = collector.pollAckMessages(SENDER_PLAYER.getId(), MY_PLAYER, 0);
+        assertEquals(2, ackMessages.size());
+        List<Long> ackedMsgSeqs = new ArrayList<>();
+        for (var ackMessage : ackMessages) {
+            ackedMsgSeqs.addAll(AcknowledgementsCollector.getAckedMsgSeqs(ackMessage.getMessage()));
+        }
+        assertEquals(50, ackedMsgSeqs.size());
+        assertEquals(50, ackedMsgSeqs.stream().distinct().count());
+    }
+
+    @Test
+    void ignoresMalformedAckRanges() {
+        var ackMessage = SnakesProto.GameMessage.newBuilder()
+                .setMsgSeq(10)
+                .setAck(SnakesProto.GameMessage.AckMsg.newBuilder()
+                        .addRanges(makeAckRange(5, 4))
+                        .addRanges(makeAckRange(0, Long.MAX_VALUE))
+                        .addRanges(makeAckRange(9, 10)))
+                .build();
+        assertEquals(List.of(10L, 9L), AcknowledgementsCollector.getAckedMsgSeqs(ackMessage));
+    }
+
+    @Test
+    void pollsNothingForPlayerWithoutPendingAcks() {
+        var collector = new AcknowledgementsCollector();
+        assertTrue(collector.pollAckMessages(SENDER_PLAYER.getId(), MY_PLAYER, 0).isEmpty());
+    }
+
+    private static SnakesProto.GameMessage.AckMsg.AckRange makeAckRange(long firstMsgSeq, long lastMsgSeq) {
+        return SnakesProto.GameMessage.AckMsg.AckRange.newBuilder()
+                .setFirstMsgSeq(firstMsgSeq)
+                .setLastMsgSeq(lastMsgSeq)
+                .build();
+    }
+
+    private static SnakesProto.GamePlayer makePlayer(int playerId) {
+        return SnakesProto.GamePlayer.newBuilder()
+                .setId(playerId)
+                .setName("player" + playerId)
+                .setIpAddress("127.0.0.1")
+                .setPort(9192 + playerId)
+                .setRole(SnakesProto.NodeRole.NORMAL)
+                .setScore(0)
+                .build();
+    }
+}
@@ -0,0 +1,68 @@
+package app.networks;
+
+import com.google.protobuf.ByteString;
+import org.junit.jupiter.api.Test;
+import proto.SnakesProto;
+
+import java.net.InetSocketAddress;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FragmentsReassemblerTest {
+    private static final InetSocketAddress SENDER_ADDRESS = new InetSocketAddress("127.0.0.1", 9192);
+    private static final long REASSEMBLY_TIMEOUT = 1000;
+
+    @Test
+    void reassemblesFragmentsArrivingOutOfOrder() {
+        var reassembler = new FragmentsReassembler(1024, REASSEMBLY_TIMEOUT);
+        assertNull(reassembler.addFragment(SENDER_ADDRESS, makeFragment(1, 2, 3, "c"), 0));
+        assertNull(reassembler.addFragment(SENDER_ADDRESS, makeFragment(1, 0, 3, "a"), 0));
+        assertEquals(ByteString.copyFromUtf8("abc"),
+                reassembler.addFragment(SENDER_ADDRESS, makeFragment(1, 1, 3, "b"), 0));
+    }
+
+    @Test
+    void ignoresDuplicateFragments() {
+        var reassembler = new FragmentsReassembler(1024, REASSEMBLY_TIMEOUT);
+        assertNull(reassembler.addFragment(SENDER_ADDRESS, makeFragment(1, 0, 2, "a"), 0));
+        assertNull(reassembler.addFragment(SENDER_ADDRESS, makeFragment(1, 0, 2, "x"), 0));
+        assertEquals(ByteString.copyFromUtf8("ab"),
+                reassembler.addFragment(SENDER_ADDRESS, makeFragment(1, 1, 2, "b"), 0));
+    }
+
+    @Test
+    void rejectsFragmentOutsideOfMessage() {
+        var reassembler = new FragmentsReassembler(1024, REASSEMBLY_TIMEOUT);
+        assertNull(reassembler.addFragment(SENDER_ADDRESS, makeFragment(1, 2, 2, "a"), 0));
+        assertNull(reassembler.addFragment(SENDER_ADDRESS, makeFragment(1, 0, 0, "a"), 0));
+    }
+
+    @Test
+    void dropsMessageAfterReassemblyTimeout() {
+        var reassembler = new FragmentsReassembler(1024, REASSEMBLY_TIMEOUT);
+        assertNull(reassembler.addFragment(SENDER_ADDRESS, makeFragment(1, 0, 2, "a"), 0));
+        assertNull(reassembler.addFragment(SENDER_ADDRESS, makeFragment(1, 1, 2, "b"), REASSEMBLY_TIMEOUT + 1));
+    }
+
+    @Test
+    void countsPendingMessagesBookkeepingTowardMemoryLimit() {
+        var reassembler = new FragmentsReassembler(1024, REASSEMBLY_TIMEOUT);
+        for (int messageId = 0; messageId < 100; messageId++) {
+            assertNull(reassembler.addFragment(SENDER_ADDRESS, makeFragment(messageId, 0, 2, "a"), 0));
+        }
+        assertNull(reassembler.addFragment(SENDER_ADDRESS, makeFragment(0, 1, 2, "b"), 0));
+        assertEquals(ByteString.copyFromUtf8("ab"),
+                reassembler.addFragment(SENDER_ADDRESS, makeFragment(99, 1, 2, "b"), 0));
+    }
+
+    private static SnakesProto.GameMessage.FragmentMsg makeFragment(long messageId, int fragmentIndex,
+                                                                    int fragmentsNumber, String data) {
+        return SnakesProto.GameMessage.FragmentMsg.newBuilder()
+                .setMessageId(messageId)
+                .setFragmentIndex(fragmentIndex)
+                .setFragmentsNumber(fragmentsNumber)
+                .setData(ByteString.copyFromUtf8(data))
+                .build();
+    }
+}
@@ -0,0 +1,63 @@
+package app.networks;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PhiAccrualFailureDetectorTest {
+    private static final int PLAYER_ID = 1;
+    private static final long HEARTBEAT_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int HEARTBEATS_NUMBER = 20;
+
+    @Test
+    void suspicionGrowsWithSilence() {
+        var failureDetector = new PhiAccrualFailureDetector(PhiAccrualFailureDetector.DEFAULT_THRESHOLD);
+        long lastHeartbeatTime = sendRegularHeartbeats(failureDetector);
+        assertEquals(lastHeartbeatTime, failureDetector.getLastHeartbeatTime(PLAYER_ID));
+
+        double previousSuspicionLevel = 0;
+        for (int i = 1; i <= 10; i++) {
+            double suspicionLevel = failureDetector.getSuspicionLevel(PLAYER_ID, lastHeartbeatTime + i * HEARTBEAT_INTERVAL);
+            assertTrue(suspicionLevel >= previousSuspicionLevel);
+            previousSuspicionLevel = suspicionLevel;
+        }
+        assertFalse(failureDetector.isSuspected(PLAYER_ID, lastHeartbeatTime + HEARTBEAT_INTERVAL));
+        assertTrue(failureDetector.isSuspected(PLAYER_ID, lastHeartbeatTime + 10 * HEARTBEAT_INTERVAL));
+    }
+
+    @Test
+    void closeHeartbeatsCountAsOne() {
+        var regularDetector = new PhiAccrualFailureDetector(PhiAccrualFailureDetector.DEFAULT_THRESHOLD);
+        var burstyDetector = new PhiAccrualFailureDetector(PhiAccrualFailureDetector.DEFAULT_THRESHOLD);
+        for (int i = 0; i < HEARTBEATS_NUMBER; i++) {
+            regularDetector.heartbeat(PLAYER_ID, i * HEARTBEAT_INTERVAL);
+            burstyDetector.heartbeat(PLAYER_ID, i * HEARTBEAT_INTERVAL);
+            burstyDetector.heartbeat(PLAYER_ID, i * HEARTBEAT_INTERVAL + TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        long checkTime = HEARTBEATS_NUMBER * HEARTBEAT_INTERVAL;
+        assertEquals(regularDetector.getSuspicionLevel(PLAYER_ID, checkTime),
+                burstyDetector.getSuspicionLevel(PLAYER_ID, checkTime));
+    }
+
+    @Test
+    void forgetsRemovedPlayer() {
+        var failureDetector = new PhiAccrualFailureDetector(PhiAccrualFailureDetector.DEFAULT_THRESHOLD);
+        long lastHeartbeatTime = sendRegularHeartbeats(failureDetector);
+        failureDetector.remove(PLAYER_ID);
+        assertEquals(0, failureDetector.getSuspicionLevel(PLAYER_ID, lastHeartbeatTime + 100 * HEARTBEAT_INTERVAL));
+        assertEquals(0, failureDetector.getLastHeartbeatTime(PLAYER_ID));
+    }
+
+    private static long sendRegularHeartbeats(PhiAccrualFailureDetector failureDetector) {
+        long heartbeatTime = 0;
+        for (int i = 0; i < HEARTBEATS_NUMBER; i++) {
+            heartbeatTime = i * HEARTBEAT_INTERVAL;
+            failureDetector.heartbeat(PLAYER_ID, heartbeatTime);
+        }
+        return heartbeatTime;
+    }
+}